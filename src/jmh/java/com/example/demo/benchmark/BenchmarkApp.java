@@ -0,0 +1,39 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.HuertoHogarBdApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Arranca la aplicación completa (H2 embebido + DataInitializer) para los benchmarks y pruebas de carga.
+ * Las propiedades se pasan como argumentos de línea de comandos para que tengan prioridad sobre
+ * application.properties (con SpringApplicationBuilder.properties quedarían por debajo).
+ */
+public final class BenchmarkApp {
+
+    private static final String[] QUIET_LOGGING = {
+            "--logging.level.root=WARN",
+            "--logging.level.org.springframework.web=WARN",
+            "--logging.level.org.hibernate.SQL=WARN",
+            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN"
+    };
+
+    private BenchmarkApp() {
+    }
+
+    // 'properties' en formato "clave=valor"
+    public static ConfigurableApplicationContext start(WebApplicationType type, String... properties) {
+        List<String> args = new ArrayList<>(Arrays.asList(QUIET_LOGGING));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(HuertoHogarBdApplication.class)
+                .web(type)
+                .run(args.toArray(String[]::new));
+    }
+}
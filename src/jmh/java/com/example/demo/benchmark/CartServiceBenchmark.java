@@ -0,0 +1,59 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.CartItem;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.CartService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CartService contra el contexto completo (H2 embebido): el upsert atómico de addOrUpdateItem
+ * (con su reserva de stock) y el total por consulta agregada de getTotalPrice, sobre un carrito de 5 líneas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+public class CartServiceBenchmark {
+
+    private static final long HOT_PRODUCT_ID = 6L;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private Long userId;
+    private int calls;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkApp.start(WebApplicationType.NONE);
+        cartService = context.getBean(CartService.class);
+        userId = context.getBean(UserRepository.class).findByUsername("user@huerto.cl").orElseThrow().getId();
+
+        cartService.clearCart(userId);
+        for (long productId = 1; productId <= 5; productId++) {
+            cartService.addOrUpdateItem(userId, productId, 1);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cartService.clearCart(userId);
+        context.close();
+    }
+
+    // Alterna +1 / -1 para que el carrito (y el stock reservado) no crezca durante la medición
+    @Benchmark
+    @Threads(1)
+    public CartItem addOrUpdateItem() throws Exception {
+        return cartService.addOrUpdateItem(userId, HOT_PRODUCT_ID, (calls++ & 1) == 0 ? 1 : -1);
+    }
+
+    @Benchmark
+    public long getTotalPrice() {
+        return cartService.getTotalPrice(userId);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.User;
+import com.example.demo.security.JwtTokenUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens/seg de JwtTokenUtil con la clave y el parser precomputados,
+ * comparado con el enfoque anterior (decodificar la clave y construir el parser en cada llamada).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtTokenUtilBenchmark {
+
+    private static final String SECRET = "unaClaveSuperSecretaYMasLargaDe32CaracteresParaJWT2025";
+    private static final int EXPIRATION_MS = 86400000;
+
+    private JwtTokenUtil jwtTokenUtil;
+    private Authentication authentication;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenUtil = new JwtTokenUtil();
+        ReflectionTestUtils.setField(jwtTokenUtil, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtTokenUtil, "jwtExpirationMs", EXPIRATION_MS);
+        jwtTokenUtil.init();
+
+        User user = new User("bench@huerto.cl", "x", "Benchmark", List.of("ROLE_USER"));
+        authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        token = jwtTokenUtil.generateJwtToken(authentication);
+    }
+
+    // --- Implementación actual ---
+
+    @Benchmark
+    public String generate() {
+        return jwtTokenUtil.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public Claims parse() {
+        return jwtTokenUtil.parseClaims(token);
+    }
+
+    // --- Línea base: el enfoque anterior, con setup por llamada ---
+
+    @Benchmark
+    public String generatePerCallKey() {
+        User userPrincipal = (User) authentication.getPrincipal();
+        return Jwts.builder()
+                .subject(userPrincipal.getUsername())
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + EXPIRATION_MS))
+                .signWith(legacyKey())
+                .compact();
+    }
+
+    @Benchmark
+    public Claims parsePerCallParser() {
+        return Jwts.parser()
+                .verifyWith(legacyKey())
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private static SecretKey legacyKey() {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+    }
+}
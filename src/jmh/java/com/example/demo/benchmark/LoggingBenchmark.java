@@ -0,0 +1,131 @@
+package com.example.demo.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import com.example.demo.logging.SamplingTurboFilter;
+import net.logstash.logback.encoder.LogstashEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.MDC;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests/seg que soporta el logging de un request típico (1 línea INFO de la aplicación + 3 sentencias SQL
+ * en DEBUG, con requestId en el MDC), con 8 hilos:
+ * - SYNC_TEXT: la configuración anterior (texto con patrón, escritura síncrona, todo el SQL),
+ * - ASYNC_JSON: el perfil prod de logback-spring.xml (JSON tras un AsyncAppender acotado, SQL muestreado 1/100).
+ * La salida se descarta para medir solo el coste en el hilo que loguea; con una consola o un disco reales
+ * la escritura síncrona cuesta todavía más.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+public class LoggingBenchmark {
+
+    private static final String PATTERN =
+            "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%t] [%X{requestId:-}] %-40.40logger{39} : %m%n";
+
+    private static final String SQL =
+            "select ci1_0.id,ci1_0.product_id,ci1_0.product_name,ci1_0.quantity,ci1_0.unit_price,ci1_0.user_id "
+                    + "from cart_item ci1_0 where ci1_0.user_id=? order by ci1_0.id";
+
+    public enum Mode { SYNC_TEXT, ASYNC_JSON }
+
+    @Param({"SYNC_TEXT", "ASYNC_JSON"})
+    private Mode mode;
+
+    private LoggerContext context;
+    private Logger appLogger;
+    private Logger sqlLogger;
+
+    @Setup
+    public void setUp() {
+        context = new LoggerContext();
+        context.start();
+
+        OutputStreamAppender<ILoggingEvent> output = new OutputStreamAppender<>();
+        output.setContext(context);
+        output.setName("OUT");
+        output.setOutputStream(OutputStream.nullOutputStream());
+        output.setEncoder(mode == Mode.SYNC_TEXT ? patternEncoder() : jsonEncoder());
+        output.start();
+
+        Appender<ILoggingEvent> root = output;
+        if (mode == Mode.ASYNC_JSON) {
+            // Mismos parámetros que ASYNC_JSON en logback-spring.xml
+            AsyncAppender async = new AsyncAppender();
+            async.setContext(context);
+            async.setName("ASYNC");
+            async.setQueueSize(8192);
+            async.setDiscardingThreshold(1638);
+            async.setNeverBlock(true);
+            async.setIncludeCallerData(false);
+            async.addAppender(output);
+            async.start();
+            root = async;
+
+            SamplingTurboFilter sampling = new SamplingTurboFilter();
+            sampling.setContext(context);
+            sampling.setLoggerName("org.hibernate.SQL");
+            sampling.setSampleRate(100);
+            sampling.start();
+            context.addTurboFilter(sampling);
+        }
+
+        Logger rootLogger = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        rootLogger.setLevel(Level.INFO);
+        rootLogger.addAppender(root);
+
+        appLogger = context.getLogger("com.example.demo.service.CartService");
+        sqlLogger = context.getLogger("org.hibernate.SQL");
+        sqlLogger.setLevel(Level.DEBUG);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+    }
+
+    @Benchmark
+    public void request() {
+        MDC.put("requestId", Long.toHexString(Thread.currentThread().threadId()));
+        try {
+            appLogger.info("Carrito actualizado: usuario {} producto {} cantidad {}", 42L, 6L, 1);
+            for (int i = 0; i < 3; i++) {
+                if (sqlLogger.isDebugEnabled()) {
+                    sqlLogger.debug(SQL);
+                }
+            }
+        } finally {
+            MDC.remove("requestId");
+        }
+    }
+
+    private Encoder<ILoggingEvent> patternEncoder() {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        return encoder;
+    }
+
+    private Encoder<ILoggingEvent> jsonEncoder() {
+        LogstashEncoder encoder = new LogstashEncoder();
+        encoder.setContext(context);
+        encoder.setIncludeCallerData(false);
+        encoder.addIncludeMdcKeyName("requestId");
+        encoder.start();
+        return encoder;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.dto.LoginResult;
+import com.example.demo.jdbc.QueryCounter;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.AuthService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Signin concurrente contra el contexto completo (H2 embebido).
+ * SampleTime entrega los percentiles (p99); al terminar se imprimen las consultas SQL por login,
+ * comparando el flujo actual (una carga del usuario) con el anterior (login + findByUsername).
+ * Las consultas se cuentan con QueryCounter en el hilo de cada login: las de tareas en segundo plano
+ * (outbox, write-behind del stock) no se mezclan, como pasaba con las estadísticas globales de Hibernate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(8)
+public class SigninBenchmark {
+
+    private static final String USERNAME = "user@huerto.cl";
+    private static final String PASSWORD = "password123";
+
+    private ConfigurableApplicationContext context;
+    private AuthService authService;
+    private UserRepository userRepository;
+
+    private final AtomicLong logins = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApp.start(WebApplicationType.NONE,
+                "db.query-count.enabled=true",
+                // La caché de principals ocultaría justamente la consulta que queremos contar
+                "auth.user-cache.ttl-ms=1");
+        authService = context.getBean(AuthService.class);
+        userRepository = context.getBean(UserRepository.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        logins.set(0);
+        queries.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportQueries() {
+        long count = logins.get();
+        if (count > 0) {
+            System.out.printf("%n  consultas SQL por login: %.2f (%d logins)%n",
+                    (double) queries.get() / count, count);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public LoginResult signin() {
+        try (QueryCounter.Scope scope = QueryCounter.start()) {
+            LoginResult result = authService.login(USERNAME, PASSWORD);
+            count(scope);
+            return result;
+        }
+    }
+
+    // Línea base: el flujo anterior del controlador, que volvía a buscar el usuario tras autenticar
+    @Benchmark
+    public User signinWithSecondLookup() {
+        try (QueryCounter.Scope scope = QueryCounter.start()) {
+            authService.login(USERNAME, PASSWORD);
+            User user = userRepository.findByUsername(USERNAME).orElseThrow();
+            count(scope);
+            return user;
+        }
+    }
+
+    private void count(QueryCounter.Scope scope) {
+        logins.incrementAndGet();
+        queries.addAndGet(scope.getCount());
+    }
+}
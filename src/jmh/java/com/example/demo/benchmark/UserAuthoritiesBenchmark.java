@@ -0,0 +1,40 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de User.getAuthorities, que Spring Security llama en cada request autenticado
+ * (JwtRequestFilter, validación del token y reglas de autorización).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserAuthoritiesBenchmark {
+
+    private User singleRole;
+    private User threeRoles;
+
+    @Setup
+    public void setUp() {
+        singleRole = new User("user@huerto.cl", "x", "Usuario", List.of("ROLE_USER"));
+        threeRoles = new User("admin@huerto.cl", "x", "Admin", List.of("ROLE_USER", "ROLE_ADMIN", "ROLE_STAFF"));
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> singleRole() {
+        return singleRole.getAuthorities();
+    }
+
+    @Benchmark
+    public Collection<? extends GrantedAuthority> threeRoles() {
+        return threeRoles.getAuthorities();
+    }
+}
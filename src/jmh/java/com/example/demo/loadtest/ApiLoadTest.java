@@ -0,0 +1,278 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.benchmark.BenchmarkApp;
+import com.example.demo.jdbc.QueryCountFilter;
+import com.example.demo.service.ProductService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prueba de carga de punta a punta contra el servidor embebido, con un volumen de datos grande sembrado al inicio.
+ * Recorre cuatro fases (signin, navegación del catálogo, mutaciones del carrito y una mezcla de las tres),
+ * cada una con una tasa de llegada fija (carga abierta: la latencia se mide desde el instante en que la petición
+ * debía salir, así que un servidor lento no reduce la carga ofrecida). Por fase y endpoint imprime
+ * throughput, p50/p99/p999 y las sentencias SQL por petición. Las sentencias salen de la cabecera X-Query-Count
+ * de cada respuesta (contadas en el DataSource): incluyen también el SQL que no pasa por Hibernate, como el
+ * MERGE de JdbcTemplate del carrito, y no se mezclan entre endpoints de la misma fase.
+ *
+ * Uso: ./mvnw -Pbenchmark test-compile exec:exec -Dbench.main=com.example.demo.loadtest.ApiLoadTest \
+ *        -Djmh.args="--products 100000 --users 1000000 --carts 10000 --seconds 30"
+ * Otros argumentos: --lines, --warmup, --signin-rate, --browse-rate, --cart-rate, --mix-rate,
+ *        --token-users, --seed, --virtual true|false
+ */
+public class ApiLoadTest {
+
+    private final String base;
+    private final HttpClient client;
+    private final SplittableRandom random;
+    private final int users;
+    private final long firstProductId;
+    private final int products;
+    private final List<String> tokens = new ArrayList<>();
+
+    ApiLoadTest(String base, HttpClient client, long seed, int users, long firstProductId, int products) {
+        this.base = base;
+        this.client = client;
+        this.random = new SplittableRandom(seed);
+        this.users = users;
+        this.firstProductId = firstProductId;
+        this.products = products;
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestArgs options = new LoadTestArgs(args);
+        int productCount = options.getInt("--products", 100_000);
+        int userCount = options.getInt("--users", 1_000_000);
+        int cartCount = options.getInt("--carts", 10_000);
+        int linesPerCart = options.getInt("--lines", 5);
+        int seconds = options.getInt("--seconds", 30);
+        int warmupSeconds = options.getInt("--warmup", 10);
+        int tokenUsers = options.getInt("--token-users", 50);
+        long seed = options.getInt("--seed", 42);
+        boolean virtual = Boolean.parseBoolean(options.getString("--virtual", "false"));
+
+        try (ConfigurableApplicationContext context = BenchmarkApp.start(WebApplicationType.SERVLET,
+                "server.port=0",
+                "server.address=127.0.0.1",
+                "spring.threads.virtual.enabled=" + virtual,
+                "db.query-count.enabled=true",
+                "db.query-count.header=true")) {
+
+            long seedStart = System.nanoTime();
+            LoadTestSeeder seeder = new LoadTestSeeder(context.getBean(JdbcTemplate.class),
+                    context.getBean(PasswordEncoder.class), seed);
+            seeder.seedProducts(productCount);
+            seeder.seedUsers(userCount);
+            seeder.seedCarts(cartCount, linesPerCart, productCount);
+            context.getBean(ProductService.class).invalidateCatalog(); // Los productos se insertaron por JDBC
+            Long firstProductId = context.getBean(JdbcTemplate.class).queryForObject(
+                    "SELECT MIN(id) FROM products WHERE description LIKE 'Producto de carga%'", Long.class);
+            System.out.printf("%nDatos sembrados en %.1f s: %d productos, %d usuarios, %d carritos de %d líneas%n",
+                    (System.nanoTime() - seedStart) / 1e9, productCount, userCount, cartCount, linesPerCart);
+
+            ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(clientExecutor)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            String base = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+            ApiLoadTest test = new ApiLoadTest(base, client, seed, userCount, firstProductId, productCount);
+            test.signInTokenUsers(Math.min(tokenUsers, userCount));
+
+            List<Scenario> signin = List.of(new Scenario("POST /api/auth/signin", 1, test::signinRequest));
+            List<Scenario> browse = List.of(
+                    new Scenario("GET /api/products?size", 4, test::pageRequest),
+                    new Scenario("GET /api/products/{id}", 4, test::productRequest),
+                    new Scenario("GET /api/products/search", 2, test::searchRequest));
+            List<Scenario> cart = List.of(
+                    new Scenario("POST /api/cart/add", 2, test::cartAddRequest),
+                    new Scenario("GET /api/cart/summary", 1, test::cartSummaryRequest));
+            List<Scenario> mix = new ArrayList<>();
+            mix.add(new Scenario("POST /api/auth/signin", 1, test::signinRequest));
+            browse.forEach(s -> mix.add(s.withWeight(s.weight() * 3)));
+            cart.forEach(s -> mix.add(s.withWeight(s.weight() * 3)));
+
+            test.runPhase(mix, options.getInt("--mix-rate", 300), warmupSeconds); // Calentamiento (se descarta)
+
+            List<String> report = new ArrayList<>();
+            report.add(test.runPhase(signin, options.getInt("--signin-rate", 20), seconds).format("signin"));
+            report.add(test.runPhase(browse, options.getInt("--browse-rate", 500), seconds).format("catálogo"));
+            report.add(test.runPhase(cart, options.getInt("--cart-rate", 200), seconds).format("carrito"));
+            report.add(test.runPhase(mix, options.getInt("--mix-rate", 300), seconds).format("mezcla"));
+
+            System.out.printf("%n%d s por fase, hilos %s%n", seconds, virtual ? "virtuales" : "de plataforma");
+            report.forEach(System.out::print);
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    // --- Peticiones de cada escenario ---
+
+    HttpRequest signinRequest() {
+        String body = "{\"username\":\"" + LoadTestSeeder.username(random.nextInt(users))
+                + "\",\"password\":\"" + LoadTestSeeder.PASSWORD + "\"}";
+        return post("/api/auth/signin", body, null);
+    }
+
+    HttpRequest pageRequest() {
+        String[] sorts = {"id", "name", "price", "rating"};
+        return get("/api/products?size=20&sort=" + sorts[random.nextInt(sorts.length)]
+                + "&categoryId=" + (1 + random.nextInt(4)), null);
+    }
+
+    HttpRequest productRequest() {
+        return get("/api/products/" + randomProductId(), null);
+    }
+
+    HttpRequest searchRequest() {
+        String[] prefixes = {"man", "nar", "zan", "esp", "mie", "qui", "lec", "que", "tom", "pal"};
+        return get("/api/products/search?q=" + prefixes[random.nextInt(prefixes.length)], null);
+    }
+
+    // Sobre los primeros 1000 productos sembrados (conjunto "caliente"); 1 de cada 3 resta una unidad
+    HttpRequest cartAddRequest() {
+        long productId = firstProductId + random.nextInt(Math.min(products, 1000));
+        int quantity = random.nextInt(3) == 0 ? -1 : 1;
+        return post("/api/cart/add", "{\"productId\":" + productId + ",\"quantity\":" + quantity + "}", randomToken());
+    }
+
+    HttpRequest cartSummaryRequest() {
+        return get("/api/cart/summary", randomToken());
+    }
+
+    private long randomProductId() {
+        return firstProductId + random.nextInt(products);
+    }
+
+    private String randomToken() {
+        return tokens.get(random.nextInt(tokens.size()));
+    }
+
+    private HttpRequest get(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30)).GET();
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    private HttpRequest post(String path, String body, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+
+    // Tokens de un grupo fijo de usuarios sembrados, para los escenarios de carrito
+    void signInTokenUsers(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            String body = client.send(post("/api/auth/signin", "{\"username\":\"" + LoadTestSeeder.username(i)
+                    + "\",\"password\":\"" + LoadTestSeeder.PASSWORD + "\"}", null), HttpResponse.BodyHandlers.ofString()).body();
+            int start = body.indexOf("\"token\":\"") + 9;
+            tokens.add(body.substring(start, body.indexOf('"', start)));
+        }
+    }
+
+    // --- Generador de carga abierta ---
+
+    /**
+     * Envía 'rate' peticiones por segundo durante 'seconds', eligiendo escenario según su peso.
+     * Las peticiones se arman en este hilo (el Random no se comparte) y se envían cada una en un hilo virtual.
+     */
+    PhaseResult runPhase(List<Scenario> scenarios, int rate, int seconds) {
+        int totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+        Map<String, LatencyStats.Recorder> recorders = new ConcurrentHashMap<>();
+        scenarios.forEach(s -> recorders.putIfAbsent(s.endpoint(), new LatencyStats.Recorder()));
+
+        long intervalNanos = 1_000_000_000L / rate;
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long intended = start + i * intervalNanos;
+                if (intended >= end) {
+                    break;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Scenario scenario = pick(scenarios, totalWeight);
+                HttpRequest request = scenario.request().build();
+                LatencyStats.Recorder recorder = recorders.get(scenario.endpoint());
+                executor.execute(() -> {
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 400) {
+                            recorder.error();
+                        } else {
+                            long queries = response.headers().firstValueAsLong(QueryCountFilter.HEADER).orElse(0);
+                            recorder.record(System.nanoTime() - intended, queries);
+                        }
+                    } catch (Exception e) {
+                        recorder.error();
+                    }
+                });
+            }
+        } // close() espera a que terminen las peticiones en vuelo
+
+        Map<String, LatencyStats> stats = new TreeMap<>();
+        recorders.forEach((endpoint, recorder) -> stats.put(endpoint, recorder.snapshot()));
+        return new PhaseResult(rate, seconds, stats);
+    }
+
+    private Scenario pick(List<Scenario> scenarios, int totalWeight) {
+        int ticket = random.nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            ticket -= scenario.weight();
+            if (ticket < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    @FunctionalInterface
+    interface RequestFactory {
+        HttpRequest build();
+    }
+
+    record Scenario(String endpoint, int weight, RequestFactory request) {
+        Scenario withWeight(int newWeight) {
+            return new Scenario(endpoint, newWeight, request);
+        }
+    }
+
+    record PhaseResult(int rate, int seconds, Map<String, LatencyStats> stats) {
+
+        String format(String phase) {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%nFase %s: %d req/s ofrecidas%n", phase, rate));
+            out.append(String.format("%-26s %s %8s%n", "endpoint", LatencyStats.HEADER, "SQL/req"));
+            stats.forEach((endpoint, s) -> out.append(String.format("%-26s %s %8.2f%n",
+                    endpoint, s.format(seconds), s.queriesPerRequest())));
+            return out.toString();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencias (ns) de un conjunto de peticiones, ordenadas para sacar percentiles,
+ * y las sentencias SQL que ejecutaron (cabecera X-Query-Count de cada respuesta).
+ */
+final class LatencyStats {
+
+    static final String HEADER = String.format("%10s %8s %10s %8s %8s %8s %8s",
+            "requests", "errores", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+    private final long[] sortedNanos;
+    private final long errors;
+    private final long queries;
+
+    LatencyStats(long[] nanos, int count, long errors, long queries) {
+        this.sortedNanos = Arrays.copyOf(nanos, count);
+        Arrays.sort(this.sortedNanos);
+        this.errors = errors;
+        this.queries = queries;
+    }
+
+    int count() {
+        return sortedNanos.length;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    // Sentencias SQL por respuesta correcta
+    double queriesPerRequest() {
+        return sortedNanos.length == 0 ? Double.NaN : (double) queries / sortedNanos.length;
+    }
+
+    double percentileMs(double p) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    // Una fila con las columnas de HEADER; el throughput cuenta solo las respuestas correctas
+    String format(double seconds) {
+        return String.format("%10d %8d %10.1f %8.1f %8.1f %8.1f %8.1f", sortedNanos.length, errors,
+                sortedNanos.length / seconds, percentileMs(0.50), percentileMs(0.99), percentileMs(0.999),
+                percentileMs(1.0));
+    }
+
+    /**
+     * Acumulador concurrente de latencias para un endpoint.
+     */
+    static final class Recorder {
+        private long[] nanos = new long[1024];
+        private int count;
+        private long errors;
+        private long queries;
+
+        void record(long latencyNanos) {
+            record(latencyNanos, 0);
+        }
+
+        synchronized void record(long latencyNanos, long queryCount) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = latencyNanos;
+            queries += queryCount;
+        }
+
+        synchronized void error() {
+            errors++;
+        }
+
+        synchronized LatencyStats snapshot() {
+            return new LatencyStats(nanos, count, errors, queries);
+        }
+    }
+}
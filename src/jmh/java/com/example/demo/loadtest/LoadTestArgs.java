@@ -0,0 +1,27 @@
+package com.example.demo.loadtest;
+
+/**
+ * Argumentos "--nombre valor" de las pruebas de carga.
+ */
+final class LoadTestArgs {
+
+    private final String[] args;
+
+    LoadTestArgs(String[] args) {
+        this.args = args;
+    }
+
+    int getInt(String name, int defaultValue) {
+        String value = getString(name, null);
+        return value != null ? Integer.parseInt(value.replace("_", "")) : defaultValue;
+    }
+
+    String getString(String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.demo.loadtest;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Carga volúmenes grandes directamente por JDBC en lotes (sin pasar por JPA ni por el hashing por usuario):
+ * productos, usuarios "load-user-N@huerto.cl" (todos con la contraseña password123, hasheada una sola vez)
+ * y carritos con varias líneas. Con la misma semilla siempre genera los mismos datos.
+ */
+final class LoadTestSeeder {
+
+    static final String PASSWORD = "password123";
+    static final int BATCH_SIZE = 1000;
+
+    private static final String[] WORDS = {"manzana", "naranja", "plátano", "zanahoria", "espinaca", "pimiento",
+            "miel", "quinoa", "leche", "queso", "tomate", "lechuga", "palta", "frutilla", "avena", "nuez"};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final SplittableRandom random;
+
+    LoadTestSeeder(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.random = new SplittableRandom(seed);
+    }
+
+    static String username(int index) {
+        return "load-user-" + index + "@huerto.cl";
+    }
+
+    // Stock alto para que las mutaciones del carrito no terminen en 409 durante la prueba
+    void seedProducts(int count) {
+        String sql = "INSERT INTO products (name, price, unit, stock, image_res, description, rating, category_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(from + BATCH_SIZE, count); i++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                String other = WORDS[random.nextInt(WORDS.length)];
+                rows.add(new Object[]{word + " " + other + " " + i, 300 + random.nextInt(9700), "kg", 1_000_000,
+                        100 + i % 10, "Producto de carga con " + word + " y " + other, 1 + random.nextInt(40) / 10.0,
+                        (long) (1 + random.nextInt(4))});
+            }
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+
+    void seedUsers(int count) {
+        String hash = passwordEncoder.encode(PASSWORD);
+        String sql = "INSERT INTO app_user (username, password, full_name) VALUES (?, ?, ?)";
+        for (int from = 0; from < count; from += BATCH_SIZE) {
+            List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+            for (int i = from; i < Math.min(from + BATCH_SIZE, count); i++) {
+                rows.add(new Object[]{username(i), hash, "Usuario de carga " + i});
+            }
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role) "
+                + "SELECT id, 'ROLE_USER' FROM app_user WHERE username LIKE 'load-user-%'");
+    }
+
+    // 'carts' carritos de los primeros usuarios sembrados, con 'linesPerCart' productos distintos cada uno
+    void seedCarts(int carts, int linesPerCart, int productCount) {
+        List<Long> userIds = jdbcTemplate.queryForList(
+                "SELECT id FROM app_user WHERE username LIKE 'load-user-%' ORDER BY id LIMIT ?", Long.class, carts);
+        Long firstProductId = jdbcTemplate.queryForObject(
+                "SELECT MIN(id) FROM products WHERE description LIKE 'Producto de carga%'", Long.class);
+        String sql = "INSERT INTO cart_item (user_id, product_id, product_name, unit_price, quantity) "
+                + "SELECT CAST(? AS BIGINT), id, name, price, CAST(? AS INTEGER) FROM products WHERE id = ?";
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (Long userId : userIds) {
+            long start = random.nextInt(Math.max(productCount - linesPerCart, 1));
+            for (int line = 0; line < linesPerCart; line++) {
+                rows.add(new Object[]{userId, 1 + random.nextInt(3), firstProductId + start + line});
+            }
+            if (rows.size() >= BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, rows);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.benchmark.BenchmarkApp;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Prueba de carga: mismo endpoint autenticado (por defecto GET /api/cart, una consulta JPA por request)
+ * con hilos de plataforma (pool de Tomcat) y con hilos virtuales (spring.threads.virtual.enabled=true),
+ * bajo N clientes concurrentes en lazo cerrado. Imprime throughput y percentiles de latencia por modo.
+ *
+ * Uso: ./mvnw -Pbenchmark test-compile exec:exec -Dbench.main=com.example.demo.loadtest.ThreadModeLoadTest \
+ *        -Djmh.args="--clients 5000 --seconds 20"
+ */
+public class ThreadModeLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestArgs options = new LoadTestArgs(args);
+        int clients = options.getInt("--clients", 5000);
+        int seconds = options.getInt("--seconds", 20);
+        int warmupSeconds = options.getInt("--warmup", 5);
+        String path = options.getString("--path", "/api/cart");
+
+        List<String> report = new ArrayList<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            String mode = virtual ? "virtual" : "platform";
+            try (ConfigurableApplicationContext context = BenchmarkApp.start(WebApplicationType.SERVLET,
+                    "server.port=0",
+                    "server.address=127.0.0.1",
+                    "spring.threads.virtual.enabled=" + virtual)) {
+                String base = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port");
+                String token = signIn(base);
+                run(base + path, token, clients, warmupSeconds);          // Calentamiento (se descarta)
+                LatencyStats result = run(base + path, token, clients, seconds);
+                report.add(String.format("%-9s %s", mode, result.format(seconds)));
+            }
+        }
+
+        System.out.printf("%n%d clientes concurrentes, %d s por modo, GET %s%n", clients, seconds, path);
+        System.out.printf("%-9s %s%n", "modo", LatencyStats.HEADER);
+        report.forEach(System.out::println);
+    }
+
+    static String signIn(String base) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/api/auth/signin"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"user@huerto.cl\",\"password\":\"password123\"}"))
+                .build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        int start = body.indexOf("\"token\":\"") + 9;
+        return body.substring(start, body.indexOf('"', start));
+    }
+
+    // Cada cliente (un hilo virtual) repite la petición hasta el final del intervalo y guarda la latencia de cada una
+    static LatencyStats run(String url, String token, int clients, int seconds) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        LatencyStats.Recorder recorder = new LatencyStats.Recorder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder().executor(executor).connectTimeout(Duration.ofSeconds(30)).build();
+            for (int i = 0; i < clients; i++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                recorder.error();
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            recorder.error();
+                            continue;
+                        }
+                        recorder.record(System.nanoTime() - start);
+                    }
+                });
+            }
+        }
+        return recorder.snapshot();
+    }
+}
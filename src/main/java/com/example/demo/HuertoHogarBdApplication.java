@@ -2,8 +2,10 @@ package com.example.demo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling // Tareas periódicas (caducidad de reservas y write-behind del stock)
 public class HuertoHogarBdApplication {
 
 	public static void main(String[] args) {
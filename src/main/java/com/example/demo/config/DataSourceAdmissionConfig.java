@@ -0,0 +1,38 @@
+package com.example.demo.config;
+
+import com.example.demo.jdbc.AdmissionControlDataSource;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Envuelve el DataSource (Hikari) en un AdmissionControlDataSource cuando db.admission.enabled=true.
+ * Por defecto se activa junto con los hilos virtuales (spring.threads.virtual.enabled): con hilos de plataforma
+ * el pool de Tomcat ya limita la concurrencia.
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.admission.enabled", havingValue = "true")
+public class DataSourceAdmissionConfig {
+
+    // static: los BeanPostProcessor se crean antes que el resto de los beans
+    @Bean
+    public static BeanPostProcessor dataSourceAdmissionPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+                if (bean instanceof DataSource dataSource && !(bean instanceof AdmissionControlDataSource)) {
+                    int maxConcurrent = environment.getProperty("db.admission.max-concurrent", Integer.class,
+                            environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+                    long timeoutMs = environment.getProperty("db.admission.timeout-ms", Long.class, 2000L);
+                    return new AdmissionControlDataSource(dataSource, maxConcurrent, timeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.demo.config;
+
+import com.example.demo.jdbc.AdmissionControlDataSource;
+import com.example.demo.security.BoundedPasswordEncoder;
+import com.example.demo.security.JwtTokenCache;
+import com.example.demo.service.OutboxDispatcher;
+import com.example.demo.service.ProductService;
+import com.example.demo.service.StockReservationService;
+import com.example.demo.service.UserDetailsServiceImpl;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas propias de la aplicación para /actuator/prometheus.
+ * Los endpoints MVC (http.server.requests), los repositorios (spring.data.repository.invocations),
+ * el pool Hikari (hikaricp.*) y Hibernate (hibernate.*) los instrumenta Spring Boot; aquí se exponen
+ * los contadores que ya llevan las cachés y componentes internos, leídos en cada scrape (sin coste en el request).
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Habilita @Timed en los servicios
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+
+    @Bean
+    public MeterBinder jwtTokenCacheMetrics(JwtTokenCache cache) {
+        return registry -> {
+            cacheCounters(registry, "jwt", cache,
+                    JwtTokenCache::getHitCount, JwtTokenCache::getMissCount, JwtTokenCache::getEvictionCount);
+            Gauge.builder("huerto.cache.size", cache, JwtTokenCache::size)
+                    .tag("cache", "jwt")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder userDetailsCacheMetrics(UserDetailsServiceImpl service) {
+        return registry -> {
+            FunctionCounter.builder("huerto.cache.requests", service, UserDetailsServiceImpl::getCacheHitCount)
+                    .tags("cache", "user-details", "result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("huerto.cache.requests", service, UserDetailsServiceImpl::getCacheMissCount)
+                    .tags("cache", "user-details", "result", "miss")
+                    .register(registry);
+            // Cargas desde la BD: cuántas y el tiempo total (Prometheus calcula la media con rate(sum)/rate(count))
+            FunctionTimer.builder("huerto.user-details.load", service,
+                            UserDetailsServiceImpl::getLoadCount,
+                            s -> s.getAverageLoadTimeMs() * s.getLoadCount(),
+                            TimeUnit.MILLISECONDS)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordEncoderMetrics(BoundedPasswordEncoder encoder) {
+        return registry -> {
+            Gauge.builder("huerto.bcrypt.queue", encoder, BoundedPasswordEncoder::getQueueDepth)
+                    .description("Hashes BCrypt en la cola del executor del pool, esperando un hilo libre")
+                    .register(registry);
+            Gauge.builder("huerto.bcrypt.active", encoder, BoundedPasswordEncoder::getActiveCount)
+                    .register(registry);
+            FunctionCounter.builder("huerto.bcrypt.rejected", encoder, BoundedPasswordEncoder::getRejectedCount)
+                    .register(registry);
+            // Timer con buckets de histograma (huerto.bcrypt.hash): permite p99 con histogram_quantile
+            encoder.bindTo(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder catalogCacheMetrics(ProductService productService) {
+        return registry -> cacheCounters(registry, "catalog", productService,
+                ProductService::getCacheHitCount, ProductService::getCacheMissCount,
+                ProductService::getCacheEvictionCount);
+    }
+
+    @Bean
+    public MeterBinder stockReservationMetrics(StockReservationService service) {
+        return registry -> {
+            Gauge.builder("huerto.stock.reservations", service, StockReservationService::getReservationCount)
+                    .register(registry);
+            FunctionCounter.builder("huerto.stock.reservations.rejected", service,
+                            StockReservationService::getRejectedCount)
+                    .register(registry);
+            FunctionCounter.builder("huerto.stock.reservations.expired", service,
+                            StockReservationService::getExpiredCount)
+                    .register(registry);
+            FunctionCounter.builder("huerto.stock.flushes", service, StockReservationService::getFlushCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder outboxMetrics(OutboxDispatcher dispatcher) {
+        return registry -> {
+            // getPendingCount hace un COUNT en la BD: solo se evalúa en cada scrape
+            Gauge.builder("huerto.outbox.pending", dispatcher, OutboxDispatcher::getPendingCount)
+                    .register(registry);
+            FunctionCounter.builder("huerto.outbox.delivered", dispatcher, OutboxDispatcher::getDeliveredCount)
+                    .register(registry);
+            FunctionCounter.builder("huerto.outbox.failed-attempts", dispatcher,
+                            OutboxDispatcher::getFailedAttemptCount)
+                    .register(registry);
+            FunctionCounter.builder("huerto.outbox.abandoned", dispatcher, OutboxDispatcher::getAbandonedCount)
+                    .register(registry);
+        };
+    }
+
+    // Solo existe si db.admission.enabled=true (envuelve al DataSource de Hikari)
+    @Bean
+    public MeterBinder dbAdmissionMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> dataSources.orderedStream()
+                .map(MetricsConfig::findAdmissionControl)
+                .filter(Objects::nonNull)
+                .findFirst()
+                .ifPresent(admission -> {
+                    Gauge.builder("huerto.db.admission.max", admission, AdmissionControlDataSource::getMaxConcurrent)
+                            .register(registry);
+                    Gauge.builder("huerto.db.admission.in-use", admission, AdmissionControlDataSource::getInUse)
+                            .register(registry);
+                    Gauge.builder("huerto.db.admission.waiting", admission, AdmissionControlDataSource::getWaiting)
+                            .register(registry);
+                    FunctionCounter.builder("huerto.db.admission.rejected", admission,
+                                    AdmissionControlDataSource::getRejectedCount)
+                            .register(registry);
+                });
+    }
+
+    private static <T> void cacheCounters(MeterRegistry registry, String cache, T source,
+                                          ToDoubleFunction<T> hits,
+                                          ToDoubleFunction<T> misses,
+                                          ToDoubleFunction<T> evictions) {
+        FunctionCounter.builder("huerto.cache.requests", source, hits)
+                .tags("cache", cache, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("huerto.cache.requests", source, misses)
+                .tags("cache", cache, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("huerto.cache.evictions", source, evictions)
+                .tag("cache", cache)
+                .register(registry);
+    }
+
+    private static AdmissionControlDataSource findAdmissionControl(DataSource dataSource) {
+        while (dataSource != null) {
+            if (dataSource instanceof AdmissionControlDataSource admission) {
+                return admission;
+            }
+            dataSource = dataSource instanceof DelegatingDataSource delegating ? delegating.getTargetDataSource() : null;
+        }
+        return null;
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.demo.config;
 
+import com.example.demo.security.BoundedPasswordEncoder;
 import com.example.demo.security.JwtRequestFilter;
 import com.example.demo.service.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -14,7 +16,6 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
@@ -35,6 +36,20 @@ public class WebSecurityConfig {
     @Autowired
     private JwtRequestFilter jwtRequestFilter;
 
+    // Costo de BCrypt (log2 de rondas). Si se sube, los hashes antiguos se actualizan en el siguiente login.
+    @Value("${auth.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // Pool dedicado al hashing: hilos, cola máxima y espera máxima antes de responder 503
+    @Value("${auth.password.pool-size:0}")
+    private int passwordPoolSize;
+
+    @Value("${auth.password.queue-capacity:64}")
+    private int passwordQueueCapacity;
+
+    @Value("${auth.password.timeout-ms:5000}")
+    private long passwordTimeoutMs;
+
     private static final String[] SWAGGER_WHITELIST = {
             "/v3/api-docs/**",
             "/swagger-ui/**",
@@ -42,8 +57,11 @@ public class WebSecurityConfig {
     };
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder() {
+        // pool-size=0 -> un hilo por núcleo (BCrypt es puramente CPU)
+        int poolSize = passwordPoolSize > 0 ? passwordPoolSize : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength),
+                poolSize, passwordQueueCapacity, passwordTimeoutMs);
     }
 
     @Bean
@@ -51,6 +69,8 @@ public class WebSecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashea con el costo actual cuando el hash guardado es más débil (upgradeEncoding)
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -65,7 +85,7 @@ public class WebSecurityConfig {
         configuration.setAllowedOriginPatterns(List.of("*"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "ETag", "Idempotent-Replayed", "X-Query-Count", "X-Request-Id"));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -88,6 +108,10 @@ public class WebSecurityConfig {
                         .requestMatchers(SWAGGER_WHITELIST).permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
 
+                        // Métricas: health y el scrape de Prometheus abiertos, el resto del actuator solo ADMIN
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+
                         // 🎯 PRODUCTOS: El catálogo (GET) es para todos
                         .requestMatchers(HttpMethod.GET, "/api/products/**").permitAll()
 
@@ -1,25 +1,28 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.JwtResponse;
+import com.example.demo.dto.LoginResult;
 import com.example.demo.model.User;
+import com.example.demo.payload.request.ChangePasswordRequest;
 import com.example.demo.payload.request.LoginRequest;
 import com.example.demo.payload.request.SignupRequest;
-import com.example.demo.repository.UserRepository; // <<--- NUEVA IMPORTACIÓN
+import com.example.demo.security.PasswordHashingRejectedException;
 import com.example.demo.service.AuthService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UsernameNotFoundException; // Nueva importación para manejo de error
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 // Importaciones de Swagger/OpenAPI (SpringDoc)
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -33,11 +36,10 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 @Tag(name = "Autenticación", description = "Endpoints para el registro y el inicio de sesión (signin) de usuarios.")
 public class AuthController {
 
-    @Autowired
-    private AuthService authService;
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
 
     @Autowired
-    private UserRepository userRepository; // <<--- NUEVA INYECCIÓN PARA BUSCAR EL USUARIO
+    private AuthService authService;
 
     // ... (El método /register se mantiene igual y funciona correctamente)
     @PostMapping("/register")
@@ -55,6 +57,9 @@ public class AuthController {
             );
 
             return ResponseEntity.ok(Map.of("message", "Usuario registrado exitosamente!"));
+        } catch (PasswordHashingRejectedException e) {
+            // Pool de hashing saturado: rechazo rápido en vez de encolar más trabajo
+            return serviceUnavailable();
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
         }
@@ -79,7 +84,8 @@ public class AuthController {
             @ApiResponse(responseCode = "200", description = "Inicio de sesión exitoso. Retorna el JWT y detalles.",
                     content = @Content(mediaType = "application/json",
                             schema = @Schema(implementation = JwtResponse.class))),
-            @ApiResponse(responseCode = "401", description = "Credenciales inválidas (Unauthorized)")
+            @ApiResponse(responseCode = "401", description = "Credenciales inválidas (Unauthorized)"),
+            @ApiResponse(responseCode = "503", description = "Servicio de autenticación saturado, reintentar más tarde")
     })
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest) {
@@ -90,31 +96,77 @@ public class AuthController {
 
             // 1. Llama al servicio para autenticar y generar el token.
             // Esto valida el usuario/contraseña y, si es exitoso, genera el JWT.
-            String jwt = authService.login(loginRequest.getUsername(), loginRequest.getPassword());
-
-            // 2. Dado que el casting directo falla, buscamos la entidad User completa
-            // en la base de datos usando el username que acaba de ser validado.
-            User user = userRepository.findByUsername(loginRequest.getUsername())
-                    .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado después de la autenticación."));
-
-
-            // 3. Mapear roles a List<String>. Usa la entidad 'user' obtenida.
-            List<String> roles = user.getAuthorities().stream()
-                    .map(item -> item.getAuthority())
-                    .collect(Collectors.toList());
-
-            // 4. Devolver la respuesta completa (JwtResponse)
-            return ResponseEntity.ok(new JwtResponse(jwt,
-                    user.getId(), // Usamos la entidad 'user' para obtener el ID
-                    user.getUsername(),
-                    roles));
+            // El resultado ya trae el principal cargado durante la autenticación (una sola consulta).
+            LoginResult result = authService.login(loginRequest.getUsername(), loginRequest.getPassword());
+
+            // 2. Devolver la respuesta completa (JwtResponse)
+            return ResponseEntity.ok(new JwtResponse(result.getToken(),
+                    result.getId(),
+                    result.getUsername(),
+                    result.getRoles()));
+        } catch (PasswordHashingRejectedException e) {
+            return serviceUnavailable();
         } catch (org.springframework.security.core.AuthenticationException e) {
+            // Si el usuario no existe, DaoAuthenticationProvider envuelve el rechazo del pool en otra excepción
+            if (e.getCause() instanceof PasswordHashingRejectedException) {
+                return serviceUnavailable();
+            }
             // Manejar credenciales inválidas (Invalid username or password)
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Credenciales inválidas."));
         } catch (Exception e) {
-            // Error inesperado del servidor (incluyendo UsernameNotFoundException si falla la búsqueda)
-            e.printStackTrace();
+            // Error inesperado del servidor
+            log.error("Error inesperado al iniciar sesión", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Ocurrió un error inesperado al iniciar sesión."));
         }
     }
+
+    // POST /api/auth/logout
+    @Operation(summary = "Cerrar sesión",
+            description = "Revoca todos los tokens emitidos hasta ahora para el usuario autenticado.")
+    @PostMapping("/logout")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> logout(@Parameter(hidden = true) @AuthenticationPrincipal User user) {
+        authService.logout(user.getUsername());
+        return ResponseEntity.ok(Map.of("message", "Sesión cerrada."));
+    }
+
+    // PUT /api/auth/password
+    @Operation(summary = "Cambiar contraseña",
+            description = "Cambia la contraseña del usuario autenticado y revoca los tokens emitidos antes del cambio.")
+    @PutMapping("/password")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> changePassword(@Parameter(hidden = true) @AuthenticationPrincipal User user,
+                                            @RequestBody ChangePasswordRequest request) {
+        try {
+            if (request.getCurrentPassword() == null || request.getNewPassword() == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "La contraseña actual y la nueva son requeridas."));
+            }
+            authService.changePassword(user.getUsername(), request.getCurrentPassword(), request.getNewPassword());
+            return ResponseEntity.ok(Map.of("message", "Contraseña actualizada. Inicie sesión nuevamente."));
+        } catch (PasswordHashingRejectedException e) {
+            return serviceUnavailable();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // PUT /api/auth/users/{id}/roles
+    @Operation(summary = "Cambiar roles de un usuario (ADMIN)",
+            description = "Reemplaza los roles del usuario y revoca sus tokens: los anteriores llevan los roles viejos.")
+    @PutMapping("/users/{id}/roles")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> updateRoles(@PathVariable Long id, @RequestBody List<String> roles) {
+        try {
+            User updated = authService.updateRoles(id, roles);
+            return ResponseEntity.ok(Map.of("id", updated.getId(), "roles", updated.getRoles()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "1")
+                .body(Map.of("error", "Servicio de autenticación saturado, reintente en unos segundos."));
+    }
 }
\ No newline at end of file
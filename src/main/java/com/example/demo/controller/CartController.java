@@ -1,10 +1,16 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.CartTotals;
 import com.example.demo.model.CartItem;
+import com.example.demo.model.User;
+import com.example.demo.payload.request.CartItemRequest;
 import com.example.demo.service.CartService;
+import com.example.demo.service.InsufficientStockException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -24,9 +30,11 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 // Ruta base para este controlador
 @RequestMapping("/api/cart")
 // 1. Anotación a nivel de clase para agrupar y describir el controlador
-@Tag(name = "Carrito de Compras", description = "Gestión de los ítems y el estado del carrito de compras de la sesión.")
+@Tag(name = "Carrito de Compras", description = "Gestión de los ítems y el estado del carrito de compras del usuario autenticado.")
 public class CartController {
 
+    // Cada endpoint recibe el User que JwtRequestFilter dejó en el SecurityContext: el carrito es siempre el suyo
+
     @Autowired
     private CartService cartService;
 
@@ -39,24 +47,37 @@ public class CartController {
                             schema = @Schema(implementation = CartItem.class)))
     })
     @GetMapping
-    public List<CartItem> getCart() {
-        return cartService.getCartItems();
+    public List<CartItem> getCart(@Parameter(hidden = true) @AuthenticationPrincipal User user) {
+        return cartService.getCartItems(user.getId());
     }
 
     // GET /api/cart/total: Obtener el precio total del carrito
     @Operation(summary = "Obtener el precio total del carrito",
-            description = "Calcula y devuelve el precio total sumado de todos los productos en el carrito.")
+            description = "Calcula y devuelve el precio total (CLP, entero exacto) sumado de todos los productos en el carrito.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Total calculado con éxito",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(implementation = Double.class)))
+                            schema = @Schema(implementation = Long.class)))
     })
     @GetMapping("/total")
-    public ResponseEntity<Double> getCartTotal() {
-        double total = cartService.getTotalPrice();
+    public ResponseEntity<Long> getCartTotal(@Parameter(hidden = true) @AuthenticationPrincipal User user) {
+        long total = cartService.getTotalPrice(user.getId());
         return ResponseEntity.ok(total);
     }
 
+    // GET /api/cart/summary: Total y cantidad de unidades en una sola consulta
+    @Operation(summary = "Obtener el resumen del carrito",
+            description = "Devuelve el precio total (CLP) y la cantidad total de unidades del carrito.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resumen calculado con éxito",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CartTotals.class)))
+    })
+    @GetMapping("/summary")
+    public ResponseEntity<CartTotals> getCartSummary(@Parameter(hidden = true) @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(cartService.getTotals(user.getId()));
+    }
+
     // POST /api/cart/add: Añadir un producto o actualizar la cantidad
     @Operation(summary = "Añadir/Actualizar ítem en el carrito",
             description = "Añade un nuevo producto al carrito o ajusta la cantidad si ya existe. Permite reducir la cantidad con un valor negativo.")
@@ -83,15 +104,17 @@ public class CartController {
                             schema = @Schema(example = "{\"message\": \"Item quantity reduced, or item removed if quantity reached zero.\"}"))),
             @ApiResponse(responseCode = "400", description = "Solicitud inválida o producto no encontrado",
                     content = @Content(mediaType = "application/json",
-                            schema = @Schema(example = "{\"error\": \"Product with ID 1 not found.\"}")))
+                            schema = @Schema(example = "{\"error\": \"Product with ID 1 not found.\"}"))),
+            @ApiResponse(responseCode = "409", description = "No hay stock disponible suficiente")
     })
     @PostMapping("/add")
-    public ResponseEntity<?> addItemToCart(@RequestBody Map<String, Object> payload) {
+    public ResponseEntity<?> addItemToCart(@Parameter(hidden = true) @AuthenticationPrincipal User user,
+                                           @RequestBody Map<String, Object> payload) {
         try {
             Long productId = ((Number) payload.get("productId")).longValue();
             int quantity = (Integer) payload.get("quantity");
 
-            CartItem updatedItem = cartService.addOrUpdateItem(productId, quantity);
+            CartItem updatedItem = cartService.addOrUpdateItem(user.getId(), productId, quantity);
 
             if (updatedItem == null && quantity < 0) {
                 // Si updatedItem es null y la cantidad es negativa, es que se eliminó
@@ -103,12 +126,49 @@ public class CartController {
             }
 
             return ResponseEntity.status(HttpStatus.CREATED).body(updatedItem);
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             // Manejo de error si el producto no existe o hay otro problema
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
         }
     }
 
+    // POST /api/cart/batch: Aplicar varios deltas de una vez (restaurar o fusionar un carrito)
+    @Operation(summary = "Aplicar varios cambios al carrito",
+            description = "Suma (o resta, con valores negativos) la cantidad de varios productos en una sola transacción "
+                    + "y devuelve el carrito resultante. Si algún producto no existe no se aplica ningún cambio.")
+    @io.swagger.v3.oas.annotations.parameters.RequestBody(
+            description = "Lista de productos y cantidades a sumar/restar.",
+            required = true,
+            content = @Content(
+                    mediaType = "application/json",
+                    examples = {
+                            @ExampleObject(name = "Sincronizar carrito", value = "[{\"productId\": 1, \"quantity\": 3}, {\"productId\": 4, \"quantity\": -1}]")
+                    }
+            )
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Carrito resultante",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = CartItem.class))),
+            @ApiResponse(responseCode = "400", description = "Solicitud inválida o producto no encontrado"),
+            @ApiResponse(responseCode = "409", description = "Stock insuficiente, o conflicto con una modificación concurrente del carrito (reintentar)")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<?> applyBatch(@Parameter(hidden = true) @AuthenticationPrincipal User user,
+                                        @RequestBody List<CartItemRequest> items) {
+        try {
+            return ResponseEntity.ok(cartService.applyBatch(user.getId(), items));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "El carrito cambió durante la operación, reintente."));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
     // DELETE /api/cart/{id}: Eliminar un CartItem específico (ej. si el ID del CartItem es 5)
     @Operation(summary = "Eliminar un ítem del carrito por su ID",
             description = "Elimina un ítem específico del carrito usando el ID del CartItem.")
@@ -118,20 +178,23 @@ public class CartController {
     })
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> removeItemFromCart(
+            @Parameter(hidden = true) @AuthenticationPrincipal User user,
             @Parameter(description = "ID del ítem del carrito a eliminar", required = true) @PathVariable Long id) {
-        cartService.removeItem(id);
+        if (!cartService.removeItem(user.getId(), id)) {
+            return ResponseEntity.notFound().build(); // No existe o no pertenece al carrito del usuario
+        }
         return ResponseEntity.noContent().build(); // HTTP 204 No Content
     }
 
     // DELETE /api/cart/clear: Vaciar todo el carrito
     @Operation(summary = "Vaciar todo el carrito",
-            description = "Elimina todos los ítems del carrito de compras.")
+            description = "Elimina todos los ítems del carrito de compras del usuario.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Carrito vaciado con éxito (No Content)")
     })
     @DeleteMapping("/clear")
-    public ResponseEntity<Void> clearCart() {
-        cartService.clearCart();
+    public ResponseEntity<Void> clearCart(@Parameter(hidden = true) @AuthenticationPrincipal User user) {
+        cartService.clearCart(user.getId());
         return ResponseEntity.noContent().build(); // HTTP 204 No Content
     }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.CheckoutResult;
+import com.example.demo.model.Order;
+import com.example.demo.model.User;
+import com.example.demo.service.CheckoutConflictException;
+import com.example.demo.service.InsufficientStockException;
+import com.example.demo.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Importaciones de Swagger/OpenAPI (SpringDoc)
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/orders")
+@Tag(name = "Pedidos", description = "Checkout del carrito y consulta de los pedidos del usuario autenticado.")
+public class OrderController {
+
+    // Cabecera que indica que la respuesta es la de un checkout anterior con la misma Idempotency-Key
+    private static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    @Autowired
+    private OrderService orderService;
+
+    // POST /api/orders/checkout: Confirmar la compra del carrito
+    @Operation(summary = "Confirmar la compra",
+            description = "Convierte el carrito en un pedido (con los precios del carrito), descuenta el stock y vacía el carrito. "
+                    + "Si se envía Idempotency-Key, los reintentos con la misma clave devuelven el mismo pedido.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Pedido creado",
+                    content = @Content(mediaType = "application/json",
+                            schema = @Schema(implementation = Order.class))),
+            @ApiResponse(responseCode = "200", description = "Pedido ya creado antes con la misma Idempotency-Key"),
+            @ApiResponse(responseCode = "400", description = "Carrito vacío, producto inexistente o clave inválida"),
+            @ApiResponse(responseCode = "409", description = "Stock insuficiente, o hay un checkout en curso con la misma clave o el mismo carrito")
+    })
+    @PostMapping("/checkout")
+    public ResponseEntity<?> checkout(
+            @Parameter(hidden = true) @AuthenticationPrincipal User user,
+            @Parameter(description = "Clave única por intento de compra (p. ej. un UUID) para reintentar sin duplicar el pedido")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        try {
+            CheckoutResult result = orderService.checkout(user.getId(), idempotencyKey);
+            if (result.isReplayed()) {
+                return ResponseEntity.ok().header(REPLAYED_HEADER, "true").body(result.getOrder());
+            }
+            return ResponseEntity.status(HttpStatus.CREATED).body(result.getOrder());
+        } catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+            // Otra petición con la misma clave (o sobre el mismo carrito) llegó primero: si ya terminó, devolvemos su pedido
+            if (idempotencyKey != null) {
+                Optional<Order> previous = orderService.findReplay(user.getId(), idempotencyKey);
+                if (previous.isPresent()) {
+                    return ResponseEntity.ok().header(REPLAYED_HEADER, "true").body(previous.get());
+                }
+            }
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Hay un checkout en curso para este carrito, reintente."));
+        } catch (InsufficientStockException | CheckoutConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // GET /api/orders: Pedidos del usuario, del más reciente al más antiguo
+    @Operation(summary = "Listar mis pedidos", description = "Devuelve los pedidos del usuario, del más reciente al más antiguo.")
+    @GetMapping
+    public ResponseEntity<List<Order>> getOrders(@Parameter(hidden = true) @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(orderService.findOrders(user.getId()));
+    }
+
+    // GET /api/orders/{id}: Un pedido del usuario
+    @Operation(summary = "Obtener un pedido por su ID")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Pedido encontrado"),
+            @ApiResponse(responseCode = "404", description = "No existe o no pertenece al usuario")
+    })
+    @GetMapping("/{id}")
+    public ResponseEntity<Order> getOrder(@Parameter(hidden = true) @AuthenticationPrincipal User user,
+                                          @PathVariable Long id) {
+        return orderService.findOrder(user.getId(), id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -1,16 +1,31 @@
 package com.example.demo.controller;
 
+import com.example.demo.dto.ProductPage;
 import com.example.demo.model.Product;
 import com.example.demo.service.ProductService;
+import com.example.demo.service.RenderedCatalog;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 @CrossOrigin(origins = "*", allowedHeaders = "*")
@@ -22,20 +37,108 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
-    @Operation(summary = "Obtener todos los productos", description = "Lista todos los productos disponibles. Acceso Público.")
+    @Operation(summary = "Obtener todos los productos",
+            description = "Lista todos los productos disponibles. Acceso Público. Soporta ETag/If-None-Match y gzip. "
+                    + "Si se envía size, sort o cursor, responde una página (ProductPage) con paginación keyset. "
+                    + "categoryId filtra por una o varias categorías (ej. categoryId=1,2).")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Catálogo completo, o una página si se pidió paginación",
+                    content = @Content(mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = Product.class)))),
+            @ApiResponse(responseCode = "304", description = "El catálogo no cambió desde el ETag enviado"),
+            @ApiResponse(responseCode = "400", description = "Orden o cursor inválido")
+    })
     @GetMapping
-    public List<Product> getAllProducts() {
-        return productService.findAllProducts();
+    public ResponseEntity<?> getAllProducts(
+            @Parameter(description = "Una o varias categorías (1=frutas, 2=vegetales, 3=despensa, 4=lácteos)") @RequestParam(required = false) List<Long> categoryId,
+            @Parameter(description = "Tamaño de página (máx. 100)") @RequestParam(required = false) Integer size,
+            @Parameter(description = "Campo de orden: id, name, price o rating") @RequestParam(required = false) String sort,
+            @Parameter(description = "asc o desc") @RequestParam(defaultValue = "asc") String direction,
+            @Parameter(description = "Cursor opaco devuelto como nextCursor en la página anterior") @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        // Listado paginado: consulta keyset en BD, tamaño de respuesta constante
+        if (size != null || sort != null || cursor != null) {
+            try {
+                ProductPage page = productService.findProductPage(
+                        categoryId, sort != null ? sort : "id", direction, size != null ? size : 20, cursor);
+                return ResponseEntity.ok(page);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
+
+        // Página de categoría sin paginar: se sirve desde la porción en memoria de esas categorías
+        if (categoryId != null && !categoryId.isEmpty()) {
+            return ResponseEntity.ok(productService.findProductsByCategories(categoryId));
+        }
+
+        // El JSON ya viene serializado (y comprimido) una vez por versión del catálogo
+        RenderedCatalog catalog = productService.getRenderedCatalog();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? catalog.getGzipEtag() : catalog.getEtag();
+
+        if (etagMatches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(catalog.getGzipJson());
+        }
+        return response.body(catalog.getJson());
+    }
+
+    @Operation(summary = "Transmitir el catálogo (NDJSON)",
+            description = "Con Accept: application/x-ndjson, envía los productos del snapshot en memoria uno por línea "
+                    + "a medida que se escriben, sin ocupar un hilo del servidor durante la espera. Acceso Público.")
+    @ApiResponse(responseCode = "200", description = "Un producto JSON por línea",
+            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                    schema = @Schema(implementation = Product.class)))
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Product> streamProducts(
+            @Parameter(description = "Una o varias categorías") @RequestParam(required = false) List<Long> categoryId) {
+        return productService.streamProducts(categoryId);
+    }
+
+    @Operation(summary = "Buscar productos",
+            description = "Búsqueda por nombre y descripción, insensible a acentos y con coincidencia por prefijo (typeahead). "
+                    + "Resultados ordenados por relevancia y rating. Acceso Público.")
+    @GetMapping("/search")
+    public List<Product> searchProducts(
+            @Parameter(description = "Texto a buscar, ej. \"plata\"", required = true) @RequestParam("q") String query,
+            @Parameter(description = "Máximo de resultados") @RequestParam(defaultValue = "10") int limit) {
+        return productService.searchProducts(query, limit);
     }
 
     @Operation(summary = "Obtener un producto por ID", description = "Recupera los detalles de un producto específico usando su ID. Acceso Público.")
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        Optional<Product> product = productService.findProductById(id);
-        return product.map(ResponseEntity::ok)
+        // Sale del snapshot en memoria: respuesta síncrona, sin el despacho extra de un request async
+        return productService.findProductById(id)
+                .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    @Operation(summary = "Obtener un producto por ID (no bloqueante)",
+            description = "Variante opcional de GET /{id} que responde con un Mono: si el catálogo aún no está en memoria, "
+                    + "la carga desde la BD no ocupa el hilo del servidor. Tiene el coste de un request async. Acceso Público.")
+    @GetMapping("/{id}/async")
+    public Mono<ResponseEntity<Product>> getProductByIdAsync(@PathVariable Long id) {
+        return productService.findProductByIdAsync(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
     @Operation(summary = "Crear un nuevo producto", description = "Crea un nuevo producto en la base de datos.")
     @PostMapping
     public Product createProduct(@RequestBody Product product) {
@@ -50,23 +153,10 @@ public class ProductController {
     @Operation(summary = "Actualizar un producto existente", description = "Actualiza la información de un producto por su ID.")
     @PutMapping("/{id}")
     public ResponseEntity<Product> updateProduct(@PathVariable Long id, @RequestBody Product productDetails) {
-        Optional<Product> existingProduct = productService.findProductById(id);
-
-        if (existingProduct.isPresent()) {
-            Product product = existingProduct.get();
-            // Actualizamos todos los campos del nuevo modelo
-            product.setName(productDetails.getName());
-            product.setDescription(productDetails.getDescription());
-            product.setPrice(productDetails.getPrice());
-            product.setStock(productDetails.getStock());
-            product.setUnit(productDetails.getUnit());
-            product.setImageRes(productDetails.getImageRes());
-            product.setRating(productDetails.getRating());
-            product.setCategoryId(productDetails.getCategoryId());
-
-            return ResponseEntity.ok(productService.saveProduct(product));
-        }
-        return ResponseEntity.notFound().build();
+        // El servicio actualiza la BD y la caché del catálogo en un solo paso
+        return productService.updateProduct(id, productDetails)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -76,4 +166,18 @@ public class ProductController {
         productService.deleteProduct(id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    // If-None-Match puede traer varios ETags separados por coma, o "*"
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
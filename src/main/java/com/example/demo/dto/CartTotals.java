@@ -0,0 +1,23 @@
+package com.example.demo.dto;
+
+// Total del carrito (en pesos, entero exacto) y cantidad de unidades, calculados con una sola consulta agregada
+public class CartTotals {
+
+    private final long total;
+    private final long itemCount;
+
+    public CartTotals(Long total, Long itemCount) {
+        this.total = total != null ? total : 0L;
+        this.itemCount = itemCount != null ? itemCount : 0L;
+    }
+
+    // --- Getters ---
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Order;
+
+// Resultado de OrderService.checkout: el pedido y si es la respuesta repetida de una Idempotency-Key ya usada
+public class CheckoutResult {
+
+    private final Order order;
+    private final boolean replayed;
+
+    public CheckoutResult(Order order, boolean replayed) {
+        this.order = order;
+        this.replayed = replayed;
+    }
+
+    // --- Getters ---
+
+    public Order getOrder() {
+        return order;
+    }
+
+    public boolean isReplayed() {
+        return replayed;
+    }
+}
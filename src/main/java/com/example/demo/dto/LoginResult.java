@@ -0,0 +1,40 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.User;
+
+import java.util.List;
+
+// Resultado de AuthService.login: el token y el principal que ya cargó el AuthenticationManager,
+// para que el controlador no tenga que volver a consultar la base de datos.
+public class LoginResult {
+
+    private final String token;
+    private final User principal;
+
+    public LoginResult(String token, User principal) {
+        this.token = token;
+        this.principal = principal;
+    }
+
+    // --- Getters ---
+
+    public String getToken() {
+        return token;
+    }
+
+    public User getPrincipal() {
+        return principal;
+    }
+
+    public Long getId() {
+        return principal.getId();
+    }
+
+    public String getUsername() {
+        return principal.getUsername();
+    }
+
+    public List<String> getRoles() {
+        return principal.getRoles();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.dto;
+
+// Evento de pedido tal como lo reciben los OrderEventConsumer (copia de la fila de outbox_event)
+public class OrderEvent {
+
+    private final Long eventId;      // Único: sirve a los consumidores para descartar entregas repetidas
+    private final String type;
+    private final Long orderId;
+    private final String payload;    // JSON del pedido
+
+    public OrderEvent(Long eventId, String type, Long orderId, String payload) {
+        this.eventId = eventId;
+        this.type = type;
+        this.orderId = orderId;
+        this.payload = payload;
+    }
+
+    // --- Getters ---
+
+    public Long getEventId() {
+        return eventId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+}
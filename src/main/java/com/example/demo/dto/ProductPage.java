@@ -0,0 +1,37 @@
+package com.example.demo.dto;
+
+import com.example.demo.model.Product;
+
+import java.util.List;
+
+// Una página del listado de productos. 'nextCursor' es opaco: el cliente lo reenvía tal cual para pedir la siguiente página
+public class ProductPage {
+
+    private final List<Product> items;
+    private final int size;
+    private final String nextCursor;
+
+    public ProductPage(List<Product> items, int size, String nextCursor) {
+        this.items = items;
+        this.size = size;
+        this.nextCursor = nextCursor;
+    }
+
+    // --- Getters ---
+
+    public List<Product> getItems() {
+        return items;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.jdbc;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Cuenta las sentencias JDBC de cada request HTTP (QueryCounter) y:
+ * - las registra en el histograma huerto.http.server.queries por método y URI (patrón del endpoint),
+ * - opcionalmente las devuelve en la cabecera X-Query-Count (fuera de producción; la usan los tests de presupuesto),
+ * - avisa en el log cuando un request pasa de 'warnThreshold' sentencias (típico N+1).
+ * Solo se cuenta lo ejecutado en el hilo del request: lo que corre en otro hilo (Mono/Flux async) no entra.
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Query-Count";
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCountFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean exposeHeader;
+    private final long warnThreshold;
+
+    public QueryCountFilter(MeterRegistry meterRegistry, boolean exposeHeader, long warnThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.exposeHeader = exposeHeader;
+        this.warnThreshold = warnThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        try (QueryCounter.Scope scope = QueryCounter.start()) {
+            if (!exposeHeader) {
+                chain.doFilter(request, response);
+            } else {
+                // La cabecera se escribe justo antes de que la respuesta se confirme (commit), con lo contado hasta ahí
+                HeaderWritingResponse wrapped = new HeaderWritingResponse(response, scope);
+                chain.doFilter(request, wrapped);
+                wrapped.writeHeader();
+            }
+
+            // Con async el request sigue en otro hilo: la cuenta estaría incompleta
+            if (!request.isAsyncStarted()) {
+                record(request, scope.getCount());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, long count) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("huerto.http.server.queries")
+                .description("Sentencias JDBC por request")
+                .baseUnit("statements")
+                .tags("method", request.getMethod(), "uri", uri)
+                // Buckets fijos: el histograma de percentiles sin límite exporta cientos de series por endpoint
+                .serviceLevelObjectives(1, 2, 5, 10, 20, 50)
+                .register(meterRegistry)
+                .record(count);
+
+        if (count > warnThreshold) {
+            log.warn("{} {} ejecutó {} sentencias SQL (umbral {}): posible N+1", request.getMethod(), uri, count, warnThreshold);
+        }
+    }
+
+    private static final class HeaderWritingResponse extends OnCommittedResponseWrapper {
+
+        private final QueryCounter.Scope scope;
+
+        HeaderWritingResponse(HttpServletResponse response, QueryCounter.Scope scope) {
+            super(response);
+            this.scope = scope;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            writeHeader();
+        }
+
+        // Una sola vez: en el commit o, si la respuesta aún no se confirmó, al terminar la cadena de filtros
+        void writeHeader() {
+            if (!isDisableOnResponseCommitted() && !isCommitted()) {
+                setHeader(HEADER, Long.toString(scope.getCount()));
+            }
+            disableOnResponseCommitted();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.jdbc;
+
+/**
+ * Cuenta las sentencias JDBC ejecutadas por el hilo actual mientras hay un ámbito abierto
+ * (QueryCountFilter abre uno por request HTTP). Fuera de un ámbito no se cuenta nada.
+ * Los ámbitos se pueden anidar: cada uno cuenta lo ejecutado desde que se abrió y al cerrarse
+ * le suma su cuenta al anterior.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    private QueryCounter() {
+    }
+
+    public static Scope start() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    // Lo llama QueryCountingDataSource en cada ejecución (un batch cuenta como un round-trip)
+    static void increment() {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.count++;
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private long count;
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (parent != null) {
+                parent.count += count;
+                CURRENT.set(parent);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
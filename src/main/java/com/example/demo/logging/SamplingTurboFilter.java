@@ -0,0 +1,59 @@
+package com.example.demo.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TurboFilter de Logback que deja pasar solo 1 de cada 'sampleRate' eventos de los loggers bajo 'loggerName'
+ * (con nivel 'maxLevel' o inferior; WARN/ERROR siempre pasan). Se usa en prod para el SQL de Hibernate:
+ * da una muestra representativa de las consultas sin formatear ni escribir cada una.
+ * Se configura en logback-spring.xml.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private String loggerName;
+    private int sampleRate = 100;
+    private Level maxLevel = Level.DEBUG;
+
+    private final AtomicLong counter = new AtomicLong();
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // format == null: es un isDebugEnabled()/isTraceEnabled(), no un evento; lo decide el nivel del logger
+        if (!isStarted() || format == null || level.toInt() > maxLevel.toInt() || !matches(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        return counter.getAndIncrement() % sampleRate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    private boolean matches(String name) {
+        return name.startsWith(loggerName)
+                && (name.length() == loggerName.length() || name.charAt(loggerName.length()) == '.');
+    }
+
+    @Override
+    public void start() {
+        if (loggerName == null || sampleRate < 1) {
+            addError("SamplingTurboFilter necesita loggerName y un sampleRate >= 1");
+            return;
+        }
+        super.start();
+    }
+
+    public void setLoggerName(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public void setMaxLevel(String maxLevel) {
+        this.maxLevel = Level.toLevel(maxLevel, Level.DEBUG);
+    }
+}
@@ -1,38 +1,50 @@
 package com.example.demo.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import jakarta.persistence.Column;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
-// Esta entidad representa un ítem específico dentro del carrito de compras.
+// Esta entidad representa un ítem específico dentro del carrito de compras de un usuario.
+// La restricción única (user_id, product_id) garantiza una sola línea por producto en cada carrito,
+// y su índice sirve también para leer el carrito de un usuario sin recorrer los de los demás.
 @jakarta.persistence.Entity
+@Table(name = "cart_item", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_cart_item_user_product", columnNames = {"user_id", "product_id"})
+})
 public class CartItem {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Dueño del carrito (ID de app_user). No se expone en el JSON: siempre es el usuario autenticado.
+    @JsonIgnore
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
     // Usamos el ID del producto y la cantidad, ya que la información del producto
     // (nombre, precio) ya está en la tabla Product.
     // Usamos un simple Long productId para este ejemplo.
+    @Column(name = "product_id", nullable = false)
     private Long productId;
 
     private String productName; // Guardamos el nombre para simplificar la respuesta
-    private double unitPrice;   // Guardamos el precio unitario en el momento de la adición
+    private int unitPrice;      // Precio unitario (CLP, entero exacto) en el momento de la adición
     private int quantity;
 
-    // NOTA: En una aplicación real, usaríamos una entidad 'User'
-    // y un campo 'userId' para asociar el carrito a un usuario.
-    // Para simplificar, asumiremos que todos los ítems son para un carrito único.
-
 
     public CartItem() {
     }
 
     // Constructor completo
-    public CartItem(Long productId, String productName, double unitPrice, int quantity) {
+    public CartItem(Long userId, Long productId, String productName, int unitPrice, int quantity) {
+        this.userId = userId;
         this.productId = productId;
         this.productName = productName;
         this.unitPrice = unitPrice;
@@ -49,6 +61,14 @@ public class CartItem {
         this.id = id;
     }
 
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
     public Long getProductId() {
         return productId;
     }
@@ -65,11 +85,11 @@ public class CartItem {
         this.productName = productName;
     }
 
-    public double getUnitPrice() {
+    public int getUnitPrice() {
         return unitPrice;
     }
 
-    public void setUnitPrice(double unitPrice) {
+    public void setUnitPrice(int unitPrice) {
         this.unitPrice = unitPrice;
     }
 
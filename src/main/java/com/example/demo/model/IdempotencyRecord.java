@@ -0,0 +1,61 @@
+package com.example.demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import java.time.Instant;
+
+// Idempotency-Key ya usada por un usuario y el pedido que produjo.
+// La restricción única hace que dos reintentos simultáneos con la misma clave no creen dos pedidos.
+@Entity
+@Table(name = "idempotency_key",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_idempotency_user_key", columnNames = {"user_id", "idem_key"})
+        },
+        indexes = {
+                @Index(name = "idx_idempotency_created_at", columnList = "created_at")
+        })
+public class IdempotencyRecord {
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idem_key", nullable = false, length = MAX_KEY_LENGTH)
+    private String key;
+
+    @Column(name = "order_id")
+    private Long orderId;        // null mientras el checkout está en curso
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    protected IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(Long userId, String key) {
+        this.userId = userId;
+        this.key = key;
+        this.createdAt = Instant.now();
+    }
+
+    // --- Getters y Setters ---
+
+    public Long getId() { return id; }
+    public Long getUserId() { return userId; }
+    public String getKey() { return key; }
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OrderBy;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Pedido confirmado a partir del carrito. Es inmutable: precios y nombres quedan congelados
+// tal como estaban en el carrito al momento de la compra (aunque el producto cambie después).
+@Entity
+@Immutable
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_user_id", columnList = "user_id, id")
+})
+public class Order {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Comprador (ID de app_user). No se expone: siempre es el usuario autenticado.
+    @JsonIgnore
+    @Column(name = "user_id", nullable = false, updatable = false)
+    private Long userId;
+
+    @Column(nullable = false, updatable = false)
+    private long total;          // CLP, suma exacta de las líneas
+
+    @Column(nullable = false, updatable = false)
+    private int itemCount;       // Unidades totales
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @OneToMany(mappedBy = "order", cascade = CascadeType.PERSIST)
+    @OrderBy("id")
+    private List<OrderLine> lines = new ArrayList<>();
+
+    protected Order() {
+    }
+
+    public Order(Long userId, List<CartItem> cartItems) {
+        this.userId = userId;
+        this.createdAt = Instant.now();
+        for (CartItem item : cartItems) {
+            OrderLine line = new OrderLine(this, item.getProductId(), item.getProductName(), item.getUnitPrice(), item.getQuantity());
+            lines.add(line);
+            total += line.getLineTotal();
+            itemCount += line.getQuantity();
+        }
+    }
+
+    // --- Getters ---
+
+    public Long getId() { return id; }
+    public Long getUserId() { return userId; }
+    public long getTotal() { return total; }
+    public int getItemCount() { return itemCount; }
+    public Instant getCreatedAt() { return createdAt; }
+    public List<OrderLine> getLines() { return Collections.unmodifiableList(lines); }
+}
@@ -0,0 +1,64 @@
+package com.example.demo.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import org.hibernate.annotations.Immutable;
+
+// Línea de un pedido: copia del producto, precio y cantidad que había en el carrito
+@Entity
+@Immutable
+@Table(name = "order_line")
+public class OrderLine {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id", nullable = false, updatable = false)
+    private Order order;
+
+    @Column(name = "product_id", nullable = false, updatable = false)
+    private Long productId;
+
+    @Column(updatable = false)
+    private String productName;
+
+    @Column(nullable = false, updatable = false)
+    private int unitPrice;       // CLP
+
+    @Column(nullable = false, updatable = false)
+    private int quantity;
+
+    protected OrderLine() {
+    }
+
+    OrderLine(Order order, Long productId, String productName, int unitPrice, int quantity) {
+        this.order = order;
+        this.productId = productId;
+        this.productName = productName;
+        this.unitPrice = unitPrice;
+        this.quantity = quantity;
+    }
+
+    // --- Getters ---
+
+    public Long getId() { return id; }
+    public Long getProductId() { return productId; }
+    public String getProductName() { return productName; }
+    public int getUnitPrice() { return unitPrice; }
+    public int getQuantity() { return quantity; }
+
+    public long getLineTotal() {
+        return (long) unitPrice * quantity;
+    }
+}
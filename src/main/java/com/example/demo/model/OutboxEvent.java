@@ -0,0 +1,108 @@
+package com.example.demo.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+// Evento pendiente de publicar (patrón outbox). Se inserta en la misma transacción que el pedido,
+// así que existe si y solo si el pedido se confirmó; OutboxDispatcher lo entrega después, fuera del request.
+@Entity
+@Table(name = "outbox_event", indexes = {
+        @Index(name = "idx_outbox_status_id", columnList = "status, id"),
+        @Index(name = "idx_outbox_processed_at", columnList = "processed_at"),
+        @Index(name = "idx_outbox_aggregate_id", columnList = "aggregate_type, aggregate_id, id")
+})
+public class OutboxEvent {
+
+    public enum Status { PENDING, DONE, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    private String aggregateType;     // p. ej. "Order"
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;         // p. ej. "OrderPlaced"
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;           // JSON
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;    // Backoff: no se reintenta antes de esta fecha
+
+    @Column(name = "processed_at")
+    private Instant processedAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    protected OutboxEvent() {
+    }
+
+    public OutboxEvent(String aggregateType, Long aggregateId, String eventType, String payload) {
+        this.aggregateType = aggregateType;
+        this.aggregateId = aggregateId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+        this.nextAttemptAt = createdAt;
+    }
+
+    // Entregado a todos los consumidores
+    public void markDone(Instant now) {
+        status = Status.DONE;
+        processedAt = now;
+        lastError = null;
+    }
+
+    // Falló un intento: se reintenta en 'nextAttempt', o se abandona si ya no quedan intentos
+    public void markFailed(String error, Instant nextAttempt, boolean giveUp) {
+        attempts++;
+        lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        if (giveUp) {
+            status = Status.FAILED;
+            processedAt = Instant.now();
+        } else {
+            nextAttemptAt = nextAttempt;
+        }
+    }
+
+    // --- Getters ---
+
+    public Long getId() { return id; }
+    public String getAggregateType() { return aggregateType; }
+    public Long getAggregateId() { return aggregateId; }
+    public String getEventType() { return eventType; }
+    public String getPayload() { return payload; }
+    public Status getStatus() { return status; }
+    public int getAttempts() { return attempts; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+    public Instant getProcessedAt() { return processedAt; }
+    public String getLastError() { return lastError; }
+}
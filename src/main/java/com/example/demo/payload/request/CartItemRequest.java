@@ -0,0 +1,13 @@
+package com.example.demo.payload.request;
+
+// Una línea de POST /api/cart/batch: producto y cantidad a sumar (negativa para restar)
+public class CartItemRequest {
+    private Long productId;
+    private int quantity;
+
+    // Getters y Setters
+    public Long getProductId() { return productId; }
+    public void setProductId(Long productId) { this.productId = productId; }
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+}
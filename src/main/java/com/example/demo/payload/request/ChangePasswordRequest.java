@@ -0,0 +1,12 @@
+package com.example.demo.payload.request;
+
+public class ChangePasswordRequest {
+    private String currentPassword;
+    private String newPassword;
+
+    // Getters y Setters
+    public String getCurrentPassword() { return currentPassword; }
+    public void setCurrentPassword(String currentPassword) { this.currentPassword = currentPassword; }
+    public String getNewPassword() { return newPassword; }
+    public void setNewPassword(String newPassword) { this.newPassword = newPassword; }
+}
@@ -1,13 +1,46 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.CartTotals;
 import com.example.demo.model.CartItem;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-// Extiende JpaRepository para obtener las operaciones CRUD básicas para CartItem
-public interface CartItemRepository extends JpaRepository<CartItem, Long> {
+import java.util.List;
+import java.util.Optional;
 
-    // Este método es crucial para el carrito: si un producto ya está,
-    // queremos encontrarlo por su ID de Producto para actualizar la cantidad, en lugar de añadir uno nuevo.
-    CartItem findByProductId(Long productId);
+// Extiende JpaRepository para obtener las operaciones CRUD básicas para CartItem.
+// Todas las consultas van acotadas por userId (índice de uk_cart_item_user_product).
+public interface CartItemRepository extends JpaRepository<CartItem, Long>, CartItemRepositoryCustom {
 
+    // El carrito del usuario
+    List<CartItem> findByUserIdOrderByIdAsc(Long userId);
+
+    // El carrito del usuario con sus filas bloqueadas (SELECT ... FOR UPDATE) hasta el fin de la transacción.
+    // Lo usa el checkout: un segundo checkout concurrente espera y luego ve el carrito ya vacío.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from CartItem c where c.userId = :userId order by c.id")
+    List<CartItem> findByUserIdForUpdate(@Param("userId") Long userId);
+
+    // La línea de un producto en el carrito del usuario (la escritura se hace con upsertQuantity)
+    Optional<CartItem> findByUserIdAndProductId(Long userId, Long productId);
+
+    // Total (precio * cantidad) y unidades del carrito en una sola consulta agregada, con aritmética entera exacta
+    @Query("select new com.example.demo.dto.CartTotals("
+            + "coalesce(sum(cast(c.unitPrice as Long) * c.quantity), 0L), coalesce(sum(cast(c.quantity as Long)), 0L)) "
+            + "from CartItem c where c.userId = :userId")
+    CartTotals getTotals(@Param("userId") Long userId);
+
+    // Borra un ítem solo si pertenece al usuario; devuelve cuántas filas se borraron
+    @Modifying
+    @Query("delete from CartItem c where c.id = :id and c.userId = :userId")
+    int deleteByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    // Vacía el carrito del usuario en una sola sentencia
+    @Modifying
+    @Query("delete from CartItem c where c.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
 }
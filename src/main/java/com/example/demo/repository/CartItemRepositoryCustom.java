@@ -0,0 +1,39 @@
+package com.example.demo.repository;
+
+import java.util.List;
+
+// Operaciones del carrito que no se pueden expresar como consultas derivadas de Spring Data
+public interface CartItemRepositoryCustom {
+
+    /**
+     * Suma 'delta' a la cantidad del producto en el carrito del usuario en una sola sentencia atómica:
+     * inserta la línea si no existe (y delta > 0), la actualiza si existe, o la borra si la cantidad llega a cero.
+     * Devuelve el número de filas afectadas.
+     */
+    int upsertQuantity(Long userId, Long productId, String productName, int unitPrice, int delta);
+
+    /**
+     * Igual que upsertQuantity para varias líneas, enviadas como un único batch JDBC.
+     */
+    void upsertQuantities(Long userId, List<QuantityDelta> deltas);
+
+    // Delta de cantidad para una línea del carrito, con los datos del producto para el insert
+    final class QuantityDelta {
+        private final Long productId;
+        private final String productName;
+        private final int unitPrice;
+        private final int delta;
+
+        public QuantityDelta(Long productId, String productName, int unitPrice, int delta) {
+            this.productId = productId;
+            this.productName = productName;
+            this.unitPrice = unitPrice;
+            this.delta = delta;
+        }
+
+        public Long getProductId() { return productId; }
+        public String getProductName() { return productName; }
+        public int getUnitPrice() { return unitPrice; }
+        public int getDelta() { return delta; }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+// Implementación del fragmento CartItemRepositoryCustom (Spring Data la detecta por el sufijo 'Impl')
+public class CartItemRepositoryImpl implements CartItemRepositoryCustom {
+
+    // MERGE estándar: la base de datos resuelve el insert/update/delete bajo el bloqueo de la fila,
+    // así dos "añadir" concurrentes nunca pierden cantidad ni crean líneas duplicadas
+    private static final String UPSERT_SQL = """
+            MERGE INTO cart_item t
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS VARCHAR(255)), CAST(? AS INTEGER), CAST(? AS INTEGER)))
+                AS s(user_id, product_id, product_name, unit_price, delta)
+            ON t.user_id = s.user_id AND t.product_id = s.product_id
+            WHEN MATCHED AND t.quantity + s.delta <= 0 THEN DELETE
+            WHEN MATCHED THEN UPDATE SET quantity = t.quantity + s.delta
+            WHEN NOT MATCHED AND s.delta > 0 THEN
+                INSERT (user_id, product_id, product_name, unit_price, quantity)
+                VALUES (s.user_id, s.product_id, s.product_name, s.unit_price, s.delta)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartItemRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int upsertQuantity(Long userId, Long productId, String productName, int unitPrice, int delta) {
+        return jdbcTemplate.update(UPSERT_SQL, userId, productId, productName, unitPrice, delta);
+    }
+
+    @Override
+    public void upsertQuantities(Long userId, List<QuantityDelta> deltas) {
+        // Un solo round-trip: todas las líneas viajan en el mismo batch
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas, deltas.size(), (ps, line) -> {
+            ps.setLong(1, userId);
+            ps.setLong(2, line.getProductId());
+            ps.setString(3, line.getProductName());
+            ps.setInt(4, line.getUnitPrice());
+            ps.setInt(5, line.getDelta());
+        });
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.IdempotencyRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndKey(Long userId, String key);
+
+    // Fechas de creación de la más nueva a la más antigua; con PageRequest.of(n, 1) da la n-ésima (desde dónde recortar)
+    @Query("select r.createdAt from IdempotencyRecord r order by r.createdAt desc")
+    List<Instant> findNewestCreatedAt(Pageable pageable);
+
+    // Borra en una sola sentencia los registros creados antes de 'cutoff' (usa idx_idempotency_created_at)
+    @Modifying
+    @Transactional
+    @Query("delete from IdempotencyRecord r where r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
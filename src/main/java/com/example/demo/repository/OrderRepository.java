@@ -0,0 +1,18 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Order;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+// Pedidos, siempre acotados al usuario (idx_orders_user_id). Las líneas se traen en la misma consulta.
+public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findByUserIdOrderByIdDesc(Long userId);
+
+    @EntityGraph(attributePaths = "lines")
+    Optional<Order> findByIdAndUserId(Long id, Long userId);
+}
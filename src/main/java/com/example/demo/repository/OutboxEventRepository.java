@@ -0,0 +1,36 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.OutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Los eventos pendientes que ya se pueden entregar, en orden de inserción (usa idx_outbox_status_id).
+    // Se filtran en la consulta los que esperan su backoff y los posteriores de un agregado cuyo evento anterior
+    // sigue en backoff o se abandonó (usa idx_outbox_aggregate_id): así un lote nunca se llena de eventos que no se
+    // pueden enviar, y un evento abandonado retiene a los siguientes de su agregado en vez de dejarlos salir desordenados.
+    @Query("select e from OutboxEvent e"
+            + " where e.status = com.example.demo.model.OutboxEvent.Status.PENDING and e.nextAttemptAt <= :now"
+            + " and not exists (select 1 from OutboxEvent b"
+            + "     where b.aggregateType = e.aggregateType and b.aggregateId = e.aggregateId and b.id < e.id"
+            + "     and (b.status = com.example.demo.model.OutboxEvent.Status.FAILED"
+            + "         or (b.status = com.example.demo.model.OutboxEvent.Status.PENDING and b.nextAttemptAt > :now)))"
+            + " order by e.id")
+    List<OutboxEvent> findDeliverable(@Param("now") Instant now, Limit limit);
+
+    long countByStatus(OutboxEvent.Status status);
+
+    // Limpieza de eventos ya entregados (usa idx_outbox_processed_at)
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxEvent e where e.status = com.example.demo.model.OutboxEvent.Status.DONE and e.processedAt < :cutoff")
+    int deleteDoneBefore(@Param("cutoff") Instant cutoff);
+}
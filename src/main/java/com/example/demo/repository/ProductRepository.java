@@ -2,6 +2,17 @@ package com.example.demo.repository;
 
 import com.example.demo.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+// La paginación keyset del listado está en ProductRepositoryCustom (maneja las columnas de orden con NULL)
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+
+    // Solo la columna stock (write-behind de StockReservationService), sin cargar ni pisar el resto de la fila
+    @Modifying
+    @Transactional
+    @Query("update Product p set p.stock = :stock where p.id = :id")
+    int updateStock(@Param("id") Long id, @Param("stock") int stock);
 }
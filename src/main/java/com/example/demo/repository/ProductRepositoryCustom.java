@@ -0,0 +1,19 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Product;
+
+import java.util.Collection;
+import java.util.List;
+
+// Consultas de productos que no se pueden expresar como consultas derivadas de Spring Data
+public interface ProductRepositoryCustom {
+
+    /**
+     * Paginación por keyset (seek) ordenada por 'sortField' y desempatada por id: devuelve hasta 'limit' productos
+     * que van después de (lastValue, lastId), o desde el principio si lastId es null.
+     * Los productos con el campo en NULL van al final en ambas direcciones, ordenados por id.
+     * 'sortField' debe estar validado por el llamador (se interpola en la consulta).
+     */
+    List<Product> findPageAfter(Collection<Long> categoryIds, String sortField, boolean ascending,
+                                Object lastValue, Long lastId, int limit);
+}
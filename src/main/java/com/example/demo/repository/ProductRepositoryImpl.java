@@ -0,0 +1,93 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Implementación del fragmento ProductRepositoryCustom (Spring Data la detecta por el sufijo 'Impl')
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    // Columnas de orden que admiten NULL: el keyset de SQL ((campo, id) > (v, i)) nunca incluye esas filas,
+    // así que se recorren en un segundo tramo, después de las que tienen valor
+    private static final Set<String> NULLABLE_SORT_FIELDS = Set.of("name", "rating");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Product> findPageAfter(Collection<Long> categoryIds, String sortField, boolean ascending,
+                                       Object lastValue, Long lastId, int limit) {
+        boolean nullable = NULLABLE_SORT_FIELDS.contains(sortField);
+        boolean inNullSection = nullable && lastId != null && lastValue == null;
+        List<Product> rows = new ArrayList<>(limit);
+
+        // 1. Filas con valor: WHERE campo IS NOT NULL AND (campo, id) después del cursor (usa el índice (campo, id))
+        if (!inNullSection) {
+            rows.addAll(valuedRows(categoryIds, sortField, ascending, lastValue, lastId, limit));
+        }
+        // 2. Si no alcanzó, siguen las filas con NULL, solo por id
+        if (nullable && rows.size() < limit) {
+            rows.addAll(nullRows(categoryIds, sortField, ascending, inNullSection ? lastId : null, limit - rows.size()));
+        }
+        return rows;
+    }
+
+    private List<Product> valuedRows(Collection<Long> categoryIds, String field, boolean ascending,
+                                     Object lastValue, Long lastId, int limit) {
+        String op = ascending ? ">" : "<";
+        String dir = ascending ? "asc" : "desc";
+        boolean byId = "id".equals(field);
+
+        StringBuilder jpql = new StringBuilder("select p from Product p where 1 = 1");
+        if (!byId) {
+            jpql.append(" and p.").append(field).append(" is not null");
+        }
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            jpql.append(" and p.categoryId in :categoryIds");
+        }
+        if (lastId != null) {
+            jpql.append(byId
+                    ? " and p.id " + op + " :lastId"
+                    : " and (p." + field + " " + op + " :lastValue or (p." + field + " = :lastValue and p.id " + op + " :lastId))");
+        }
+        jpql.append(byId ? " order by p.id " + dir : " order by p." + field + " " + dir + ", p.id " + dir);
+
+        TypedQuery<Product> query = entityManager.createQuery(jpql.toString(), Product.class);
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            query.setParameter("categoryIds", categoryIds);
+        }
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+            if (!byId) {
+                query.setParameter("lastValue", lastValue);
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    private List<Product> nullRows(Collection<Long> categoryIds, String field, boolean ascending, Long lastId, int limit) {
+        StringBuilder jpql = new StringBuilder("select p from Product p where p.").append(field).append(" is null");
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            jpql.append(" and p.categoryId in :categoryIds");
+        }
+        if (lastId != null) {
+            jpql.append(" and p.id ").append(ascending ? ">" : "<").append(" :lastId");
+        }
+        jpql.append(" order by p.id ").append(ascending ? "asc" : "desc");
+
+        TypedQuery<Product> query = entityManager.createQuery(jpql.toString(), Product.class);
+        if (categoryIds != null && !categoryIds.isEmpty()) {
+            query.setParameter("categoryIds", categoryIds);
+        }
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -2,6 +2,7 @@ package com.example.demo.repository;
 
 
 import com.example.demo.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import java.util.Optional;
@@ -9,6 +10,8 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
 
     // Mtodo personalizado crucial para el login: buscar por nombre de usuario (email)
+    // Los roles (@ElementCollection) se traen en la misma consulta para poder usarlos fuera de la transacción
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByUsername(String username);
 
     // Verificar si ya existe un usuario con ese nombre (para el registro)
@@ -0,0 +1,145 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * PasswordEncoder que ejecuta el hashing (BCrypt, deliberadamente lento) en un pool dedicado y acotado.
+ * Si la cola está llena (ArrayBlockingQueue + AbortPolicy) se rechaza de inmediato con
+ * PasswordHashingRejectedException (HTTP 503) en vez de encolar más trabajo: una avalancha de logins
+ * ya no puede dejar sin hilos al catálogo ni al carrito.
+ *
+ * El hilo que llama espera el resultado como máximo 'timeoutMs'. Si se agota, el hash que todavía estaba
+ * en cola se descarta sin ejecutarse, pero uno que ya empezó NO se detiene (BCrypt no atiende interrupciones):
+ * sigue ocupando su hilo del pool hasta terminar y su resultado se ignora. Por eso el tamaño del pool, y no
+ * el timeout, es lo que limita la CPU dedicada al hashing.
+ *
+ * El tiempo de cada hash se registra en el Timer 'huerto.bcrypt.hash' (con buckets de histograma para p99).
+ * Hasta que se llama a bindTo con el MeterRegistry de la aplicación, el Timer vive en un registro local.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    // Límites superiores de los buckets del histograma de tiempos de hash (el último bucket es "+Inf")
+    private static final Duration[] HASH_TIME_BUCKETS = {
+            Duration.ofMillis(25), Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250),
+            Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofMillis(2500), Duration.ofSeconds(5)
+    };
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile Timer hashTimer = hashTimer(new SimpleMeterRegistry());
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int poolSize, int queueCapacity, long timeoutMs) {
+        this.delegate = delegate;
+        this.timeoutMs = timeoutMs;
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hash-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Barato (solo lee el costo del hash guardado): no pasa por el pool.
+    // Si el costo configurado subió, DaoAuthenticationProvider vuelve a hashear la contraseña al hacer login.
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(() -> timed(task));
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new PasswordHashingRejectedException("Servicio de autenticación saturado, reintente en unos segundos.", e);
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Sin interrumpir: si seguía en cola no llega a ejecutarse; si ya corría, termina igual (ver Javadoc)
+            future.cancel(false);
+            rejectedCount.incrementAndGet();
+            throw new PasswordHashingRejectedException("Tiempo de espera agotado en el servicio de autenticación.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new PasswordHashingRejectedException("Hashing de contraseña interrumpido.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> T timed(Callable<T> task) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return task.call();
+        } finally {
+            hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Registra el Timer de tiempos de hash en el MeterRegistry de la aplicación (lo llama MetricsConfig).
+     */
+    public void bindTo(MeterRegistry registry) {
+        hashTimer = hashTimer(registry);
+    }
+
+    private static Timer hashTimer(MeterRegistry registry) {
+        return Timer.builder("huerto.bcrypt.hash")
+                .description("Tiempo de cada hash BCrypt en el pool dedicado")
+                .serviceLevelObjectives(HASH_TIME_BUCKETS)
+                .register(registry);
+    }
+
+    /**
+     * Detiene el pool (Spring lo invoca al cerrar el contexto).
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // --- Estadísticas ---
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getHashCount() {
+        return hashTimer.count();
+    }
+}
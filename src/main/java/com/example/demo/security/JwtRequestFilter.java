@@ -1,12 +1,17 @@
 package com.example.demo.security;
 
 import com.example.demo.service.UserDetailsServiceImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -25,6 +30,19 @@ public class JwtRequestFilter extends OncePerRequestFilter {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Si está activo, el principal se construye desde los claims del token sin consultar app_user
+    @Value("${jwt.stateless-authorities:false}")
+    private boolean statelessAuthorities;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
@@ -40,6 +58,7 @@ public class JwtRequestFilter extends OncePerRequestFilter {
 
         String username = null;
         String jwtToken = null;
+        Claims claims = null;
 
         // 1. SI NO HAY TOKEN: Pasamos al siguiente filtro de inmediato.
         if (requestTokenHeader == null || !requestTokenHeader.startsWith("Bearer ") || requestTokenHeader.contains("null")) {
@@ -50,20 +69,41 @@ public class JwtRequestFilter extends OncePerRequestFilter {
         // 2. EXTRAER TOKEN
         jwtToken = requestTokenHeader.substring(7);
 
+        // Los Claims verificados se cachean hasta el 'exp' del token: una sola verificación HMAC por token.
+        // Se mide con el resultado como tag (valid/malformed/expired/invalid); incluye los aciertos de la caché.
+        Timer.Sample verification = Timer.start(meterRegistry);
+        String outcome = "valid";
         try {
-            username = jwtTokenUtil.getUserNameFromJwtToken(jwtToken);
+            claims = jwtTokenCache.getVerifiedClaims(jwtToken);
+            username = claims.getSubject();
         } catch (IllegalArgumentException e) {
+            outcome = "malformed";
             logger.warn("No se pudo obtener el token JWT, probablemente malformado.");
         } catch (ExpiredJwtException e) {
+            outcome = "expired";
             logger.warn("El token JWT ha expirado.");
+        } catch (JwtException e) {
+            outcome = "invalid";
+            logger.warn("El token JWT no es válido.");
         }
+        verification.stop(Timer.builder("huerto.jwt.verification")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
 
         // 3. VALIDACIÓN
+        if (username != null && tokenRevocationRegistry.isRevoked(username, claims.getIssuedAt())) {
+            logger.warn("El token JWT fue revocado para el usuario: " + username);
+            username = null;
+        }
+
         if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
             try {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = statelessAuthorities && jwtTokenUtil.hasAuthorityClaims(claims)
+                        ? jwtTokenUtil.getPrincipalFromClaims(claims)
+                        : this.userDetailsService.loadUserByUsername(username);
 
-                if (jwtTokenUtil.validateJwtToken(jwtToken, userDetails)) {
+                if (jwtTokenUtil.validateJwtClaims(claims, userDetails)) {
                     UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                             userDetails, null, userDetails.getAuthorities());
                     authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -0,0 +1,86 @@
+package com.example.demo.security;
+
+import com.example.demo.cache.ExpiringCache;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Caché de tokens JWT ya verificados.
+ * La clave es el digest SHA-256 del token (no guardamos el token en claro) y la entrada
+ * vive hasta el 'exp' del propio token, así que cada token se verifica criptográficamente
+ * como máximo una vez por nodo durante su vida útil.
+ */
+@Component
+public class JwtTokenCache {
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final ExpiringCache<String, Claims> cache;
+
+    public JwtTokenCache(JwtTokenUtil jwtTokenUtil,
+                         @Value("${jwt.cache.max-entries:10000}") int maxEntries) {
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.cache = new ExpiringCache<>(maxEntries);
+    }
+
+    /**
+     * Devuelve los Claims del token, verificándolo solo si no está en caché.
+     * Propaga las mismas excepciones que JwtTokenUtil.parseClaims si el token es inválido o expiró.
+     */
+    public Claims getVerifiedClaims(String token) {
+        // La versión de la clave forma parte de la llave: al rotar, las entradas antiguas dejan de coincidir
+        final String digest = jwtTokenUtil.getKeyVersion() + ":" + digest(token);
+
+        Claims claims = cache.get(digest);
+        if (claims != null) {
+            return claims;
+        }
+
+        claims = jwtTokenUtil.parseClaims(token);
+        if (claims.getExpiration() != null) {
+            cache.put(digest, claims, claims.getExpiration().getTime());
+        }
+        return claims;
+    }
+
+    public void invalidate(String token) {
+        cache.invalidate(jwtTokenUtil.getKeyVersion() + ":" + digest(token));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    // --- Estadísticas ---
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    private static String digest(String token) {
+        try {
+            // MessageDigest no es thread-safe, así que se crea uno por llamada (es barato comparado con un HMAC + parseo)
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible en esta JVM.", e);
+        }
+    }
+}
@@ -4,13 +4,18 @@ import com.example.demo.model.User;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
-import java.security.Key;
+import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 @Component
@@ -24,6 +29,23 @@ public class JwtTokenUtil {
     @Value("${jwt.expiration.ms}")
     private int jwtExpirationMs;
 
+    // Opcional: sin registro (ej. en benchmarks) el 'iat' es simplemente ahora
+    @Autowired(required = false)
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
+    // Nombres de los claims propios que se añaden al token
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLES = "roles";
+
+    // Clave HMAC y parser construidos una sola vez (ambos son inmutables y thread-safe).
+    // Se reemplazan juntos de forma atómica al rotar la clave.
+    private final AtomicReference<SigningMaterial> signingMaterial = new AtomicReference<>();
+
+    @PostConstruct
+    public void init() {
+        rotateKey(jwtSecret);
+    }
+
     // --- MÉTODOS DE LECTURA Y EXTRACCIÓN (Parsing) ---
 
     /**
@@ -41,16 +63,33 @@ public class JwtTokenUtil {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Verifica la firma del token y devuelve todos sus Claims.
+     * Lanza JwtException (ej. ExpiredJwtException) si el token no es válido.
+     */
+    public Claims parseClaims(String token) {
+        return getAllClaimsFromToken(token);
+    }
+
     /**
      * Obtiene todos los Claims (cuerpo) del token después de validarlo con la clave.
      */
     private Claims getAllClaimsFromToken(String token) {
-        // <--- AJUSTE CLAVE: Usamos la sintaxis antigua compatible con versiones anteriores de JJWT
-        return Jwts.parser()
-                .setSigningKey(key()) // Usamos el método key() para obtener la clave
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        // El parser ya está construido con la clave: no se decodifica nada por llamada
+        SigningMaterial material = signingMaterial.get();
+        try {
+            return material.parser
+                    .parseSignedClaims(token)
+                    .getPayload();
+        } catch (SignatureException e) {
+            // Firmado con la clave anterior a la última rotación: sigue siendo válido hasta su 'exp'
+            if (material.previousParser == null) {
+                throw e;
+            }
+            return material.previousParser
+                    .parseSignedClaims(token)
+                    .getPayload();
+        }
     }
 
     // --- MÉTODOS DE VALIDACIÓN ---
@@ -77,6 +116,39 @@ public class JwtTokenUtil {
         }
     }
 
+    /**
+     * Valida Claims ya verificados (ej. desde JwtTokenCache) contra los detalles del usuario,
+     * sin volver a parsear el token.
+     */
+    public Boolean validateJwtClaims(Claims claims, UserDetails userDetails) {
+        final Date expiration = claims.getExpiration();
+        return claims.getSubject() != null
+                && claims.getSubject().equals(userDetails.getUsername())
+                && expiration != null
+                && expiration.after(new Date());
+    }
+
+    /**
+     * Indica si el token trae los claims necesarios para autorizar sin consultar la base de datos.
+     */
+    public boolean hasAuthorityClaims(Claims claims) {
+        return claims.get(CLAIM_ROLES) instanceof List<?> && claims.get(CLAIM_USER_ID) != null;
+    }
+
+    /**
+     * Construye el principal (User) directamente desde Claims ya verificados: id, username y roles.
+     * No incluye la contraseña; solo sirve para autorizar el request.
+     */
+    public User getPrincipalFromClaims(Claims claims) {
+        List<String> roles = ((List<?>) claims.get(CLAIM_ROLES)).stream()
+                .map(String::valueOf)
+                .toList();
+
+        User principal = new User(claims.getSubject(), "", null, roles);
+        principal.setId(((Number) claims.get(CLAIM_USER_ID)).longValue());
+        return principal;
+    }
+
     // --- MÉTODOS DE GENERACIÓN (Building) ---
 
     /**
@@ -85,23 +157,61 @@ public class JwtTokenUtil {
     public String generateJwtToken(Authentication authentication) {
         // Tu entidad User es el Principal aquí
         User userPrincipal = (User) authentication.getPrincipal();
+        // El 'iat' nunca queda antes de una revocación del mismo segundo (ej. login justo después del logout)
+        Date issuedAt = tokenRevocationRegistry == null
+                ? new Date()
+                : tokenRevocationRegistry.issueTime(userPrincipal.getUsername());
 
         return Jwts.builder()
-                .setSubject((userPrincipal.getUsername()))
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs)) // Usa la propiedad de application.properties
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .subject(userPrincipal.getUsername())
+                // Id y roles viajan en el token para el modo de autorización stateless (jwt.stateless-authorities)
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_ROLES, userPrincipal.getRoles())
+                .issuedAt(issuedAt)
+                .expiration(new Date(issuedAt.getTime() + jwtExpirationMs)) // Usa la propiedad de application.properties
+                .signWith(signingMaterial.get().key)
                 .compact();
     }
 
     // --- GESTIÓN DE CLAVES ---
 
     /**
-     * Decodifica la clave secreta base64 para su uso en la firma/verificación.
+     * Decodifica la clave secreta base64 y reemplaza atómicamente la clave y el parser.
+     * Los tokens nuevos se firman con esta clave; los firmados con la clave inmediatamente anterior
+     * se siguen aceptando hasta que expiren (o hasta la siguiente rotación).
      */
-    private Key key() {
-        // Usamos jwtSecret, el nombre de campo ajustado
-        byte[] keyBytes = Decoders.BASE64.decode(jwtSecret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public void rotateKey(String base64Secret) {
+        byte[] keyBytes = Decoders.BASE64.decode(base64Secret);
+        SecretKey key = Keys.hmacShaKeyFor(keyBytes);
+        JwtParser parser = Jwts.parser()
+                .verifyWith(key)
+                .build();
+
+        // updateAndGet: dos rotaciones concurrentes no pueden publicar la misma versión
+        signingMaterial.updateAndGet(previous -> previous == null
+                ? new SigningMaterial(key, parser, 0, null)
+                : new SigningMaterial(key, parser, previous.version + 1, previous.parser));
+    }
+
+    /**
+     * Versión de la clave actual; cambia en cada rotación (lo usa JwtTokenCache para descartar entradas antiguas).
+     */
+    public int getKeyVersion() {
+        return signingMaterial.get().version;
+    }
+
+    private static final class SigningMaterial {
+        private final SecretKey key;
+        private final JwtParser parser;
+        private final int version;
+        // Parser de la clave anterior (null antes de la primera rotación)
+        private final JwtParser previousParser;
+
+        private SigningMaterial(SecretKey key, JwtParser parser, int version, JwtParser previousParser) {
+            this.key = key;
+            this.parser = parser;
+            this.version = version;
+            this.previousParser = previousParser;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package com.example.demo.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Se lanza cuando el pool de hashing de contraseñas está saturado y no admite más trabajo
+ * (cola llena o espera agotada). Los controladores la traducen a HTTP 503 (Service Unavailable) con Retry-After.
+ */
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+
+    public PasswordHashingRejectedException(String msg) {
+        super(msg);
+    }
+
+    public PasswordHashingRejectedException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
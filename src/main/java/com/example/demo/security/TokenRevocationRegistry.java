@@ -0,0 +1,76 @@
+package com.example.demo.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro en memoria de revocaciones de tokens por usuario.
+ * Guarda, para cada username, el instante a partir del cual los tokens vuelven a ser válidos:
+ * todo token emitido (iat) antes de esa marca se considera revocado. La consulta es un simple
+ * get sobre un ConcurrentHashMap, así que puede hacerse en cada request sin costo apreciable.
+ * Una marca más vieja que 'jwt.expiration.ms' ya no revoca nada (esos tokens expiraron): se purga periódicamente.
+ */
+@Component
+public class TokenRevocationRegistry {
+
+    // username -> epoch en segundos (misma precisión que el claim 'iat')
+    private final ConcurrentHashMap<String, Long> notBefore = new ConcurrentHashMap<>();
+
+    @Value("${jwt.expiration.ms}")
+    private long expirationMs;
+
+    /**
+     * Revoca todos los tokens emitidos hasta ahora para el usuario
+     * (ej. tras un cambio de roles o de contraseña).
+     */
+    public void revokeAll(String username) {
+        // Redondeamos hacia arriba: un token emitido en el mismo segundo también queda revocado
+        long nowSeconds = (System.currentTimeMillis() + 999) / 1000;
+        notBefore.merge(username, nowSeconds, Math::max);
+    }
+
+    /**
+     * Indica si un token del usuario emitido en 'issuedAt' fue revocado.
+     */
+    public boolean isRevoked(String username, Date issuedAt) {
+        Long mark = notBefore.get(username);
+        if (mark == null) {
+            return false;
+        }
+        return issuedAt == null || issuedAt.getTime() / 1000 < mark;
+    }
+
+    /**
+     * Instante a usar como 'iat' de un token nuevo: ahora, o la marca de revocación si todavía no llega
+     * (un login en el mismo segundo que la revocación no debe nacer ya revocado).
+     */
+    public Date issueTime(String username) {
+        long now = System.currentTimeMillis();
+        Long mark = notBefore.get(username);
+        return new Date(mark == null ? now : Math.max(now, mark * 1000));
+    }
+
+    public void clear(String username) {
+        notBefore.remove(username);
+    }
+
+    // Borra las marcas cuyos tokens revocados ya expiraron todos, para que el mapa no crezca sin límite
+    @Scheduled(fixedDelayString = "${jwt.revocation.purge-ms:600000}")
+    public void purgeExpired() {
+        purgeExpired(System.currentTimeMillis());
+    }
+
+    void purgeExpired(long nowMillis) {
+        // Un token revocado tiene iat < marca, así que expiró a más tardar en marca + expiración.
+        // removeIf sobre values() borra solo si el valor no cambió: una revocación nueva no se pierde.
+        notBefore.values().removeIf(mark -> mark * 1000 + expirationMs <= nowMillis);
+    }
+
+    public int size() {
+        return notBefore.size();
+    }
+}
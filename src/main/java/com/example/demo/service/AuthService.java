@@ -1,8 +1,11 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.LoginResult;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.security.JwtTokenUtil;
+import com.example.demo.security.TokenRevocationRegistry;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -12,20 +15,26 @@ import org.springframework.stereotype.Service;
 import java.util.List;
 
 @Service
+@Timed(value = "huerto.service.auth", histogram = true) // Un timer por método (tag "method")
 public class AuthService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
     private final JwtTokenUtil jwtTokenUtil;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final TokenRevocationRegistry tokenRevocationRegistry;
 
     // Inyección por constructor (preferido)
     public AuthService(UserRepository userRepository, PasswordEncoder passwordEncoder,
-                       AuthenticationManager authenticationManager, JwtTokenUtil jwtTokenUtil) {
+                       AuthenticationManager authenticationManager, JwtTokenUtil jwtTokenUtil,
+                       UserDetailsServiceImpl userDetailsService, TokenRevocationRegistry tokenRevocationRegistry) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authenticationManager = authenticationManager;
         this.jwtTokenUtil = jwtTokenUtil;
+        this.userDetailsService = userDetailsService;
+        this.tokenRevocationRegistry = tokenRevocationRegistry;
     }
 
 
@@ -47,11 +56,14 @@ public class AuthService {
         // Crear el nuevo usuario
         User newUser = new User(username, encodedPassword, fullName, finalRoles);
 
-        return userRepository.save(newUser);
+        User savedUser = userRepository.save(newUser);
+        // Invalida cualquier principal cacheado con ese username
+        userDetailsService.evictUser(username);
+        return savedUser;
     }
 
     // --- 2. INICIO DE SESIÓN (Ajustado para usar el método correcto de JwtTokenUtil) ---
-    public String login(String username, String password) {
+    public LoginResult login(String username, String password) {
 
         // 1. Autenticar las credenciales. Si falla, AuthenticationManager lanza una excepción.
         Authentication authentication = authenticationManager.authenticate(
@@ -62,6 +74,47 @@ public class AuthService {
         // Usamos el método que definimos: generateJwtToken(Authentication)
         final String token = jwtTokenUtil.generateJwtToken(authentication);
 
-        return token;
+        // 3. Devolvemos también el principal ya cargado (id, username, roles): no hace falta otra consulta
+        return new LoginResult(token, (User) authentication.getPrincipal());
     }
-}
\ No newline at end of file
+
+    // --- 3. CAMBIO DE CONTRASEÑA ---
+    // Los tokens emitidos antes del cambio dejan de ser válidos.
+    public void changePassword(String username, String currentPassword, String newPassword) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + username));
+        if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
+            throw new IllegalArgumentException("La contraseña actual no es correcta.");
+        }
+
+        user.setPassword(passwordEncoder.encode(newPassword));
+        userRepository.save(user);
+        revokeTokens(username);
+    }
+
+    // --- 4. CAMBIO DE ROLES (solo ADMIN) ---
+    // Los tokens anteriores llevan los roles viejos en el claim 'roles': se revocan.
+    public User updateRoles(Long userId, List<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            throw new IllegalArgumentException("Debe indicar al menos un rol.");
+        }
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Usuario no encontrado: " + userId));
+
+        user.setRoles(roles);
+        User savedUser = userRepository.save(user);
+        revokeTokens(savedUser.getUsername());
+        return savedUser;
+    }
+
+    // --- 5. CIERRE DE SESIÓN ---
+    // Con JWT no hay sesión en el servidor: cerrar sesión revoca todos los tokens emitidos hasta ahora.
+    public void logout(String username) {
+        revokeTokens(username);
+    }
+
+    private void revokeTokens(String username) {
+        tokenRevocationRegistry.revokeAll(username);
+        userDetailsService.evictUser(username);
+    }
+}
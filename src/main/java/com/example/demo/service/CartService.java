@@ -1,81 +1,169 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.CartTotals;
 import com.example.demo.model.CartItem;
 import com.example.demo.model.Product;
+import com.example.demo.payload.request.CartItemRequest;
 import com.example.demo.repository.CartItemRepository;
-import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.CartItemRepositoryCustom.QuantityDelta;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+// Todas las operaciones trabajan sobre el carrito de un usuario (userId del usuario autenticado)
 @Service
+@Timed(value = "huerto.service.cart", histogram = true) // Un timer por método (tag "method")
 public class CartService {
 
+    // Reintentos del upsert cuando dos transacciones insertan la misma línea a la vez
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+
     @Autowired
     private CartItemRepository cartItemRepository;
 
     @Autowired
-    private ProductRepository productRepository; // Necesitamos el repositorio de Product para obtener detalles
+    private ProductService productService; // Detalles del producto desde la caché del catálogo (sin ir a la BD)
+
+    @Autowired
+    private StockReservationService stockReservationService; // Reserva/libera unidades en memoria
 
-    // 1. Obtener todos los ítems del carrito
-    public List<CartItem> getCartItems() {
-        return cartItemRepository.findAll();
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Transacción propia por intento del upsert (REQUIRES_NEW: nunca reutiliza una transacción que ya falló)
+    private TransactionTemplate upsertAttempt;
+
+    @PostConstruct
+    public void init() {
+        upsertAttempt = new TransactionTemplate(transactionManager);
+        upsertAttempt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
-    // 2. Añadir o Actualizar un Producto en el carrito
-    public CartItem addOrUpdateItem(Long productId, int quantity) throws Exception {
+    // 1. Obtener todos los ítems del carrito del usuario
+    public List<CartItem> getCartItems(Long userId) {
+        return cartItemRepository.findByUserIdOrderByIdAsc(userId);
+    }
 
-        // --- Lógica de Negocio 1: Verificar si el producto existe ---
-        Optional<Product> productOpt = productRepository.findById(productId);
+    // 2. Añadir o Actualizar un Producto en el carrito del usuario.
+    // Un solo MERGE atómico (insertar/sumar/borrar en cero) + la lectura del resultado.
+    // Sin @Transactional: cada intento corre en su propia transacción (ver upsertAttempt).
+    public CartItem addOrUpdateItem(Long userId, Long productId, int quantity) throws Exception {
+
+        // --- Lógica de Negocio 1: Verificar si el producto existe (desde la caché, sin BD) ---
+        Optional<Product> productOpt = productService.findProductById(productId);
         if (!productOpt.isPresent()) {
             throw new Exception("Producto no encontrado con ID: " + productId);
         }
         Product product = productOpt.get();
 
-        // --- Lógica de Negocio 2: Verificar si el ítem ya está en el carrito ---
-        CartItem existingItem = cartItemRepository.findByProductId(productId);
+        // Si otra transacción insertó la misma línea justo antes, el MERGE choca con uk_cart_item_user_product.
+        // Tras un error la transacción queda inutilizable (en PostgreSQL, abortada hasta el rollback), así que
+        // se reintenta en una transacción nueva: la fila ya existe y el MERGE la actualiza.
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return upsertAttempt.execute(status -> applyDelta(userId, product, quantity));
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_UPSERT_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Un intento completo: si falla, el rollback también devuelve la reserva de stock hecha aquí
+    private CartItem applyDelta(Long userId, Product product, int quantity) {
+        // --- Lógica de Negocio 2: Reservar stock (si falla, InsufficientStockException y no se escribe nada) ---
+        stockReservationService.reserve(userId, product, quantity);
 
-        if (existingItem != null) {
-            // El producto ya existe: Actualizamos la cantidad
-            int newQuantity = existingItem.getQuantity() + quantity;
-            if (newQuantity <= 0) {
-                // Si la cantidad es cero o menos, eliminamos el ítem
-                cartItemRepository.delete(existingItem);
-                return null;
+        // --- Lógica de Negocio 3: Aplicar el delta de forma atómica ---
+        cartItemRepository.upsertQuantity(userId, product.getId(), product.getName(), product.getPrice(), quantity);
+        if (quantity < 0) {
+            stockReservationService.release(userId, product.getId(), -quantity);
+        }
+
+        // null si la línea se eliminó (cantidad en cero) o si se intentó añadir 0 o menos de un producto nuevo
+        return cartItemRepository.findByUserIdAndProductId(userId, product.getId()).orElse(null);
+    }
+
+    // 2b. Aplicar varios deltas en una sola transacción (sincronización/merge del carrito desde el cliente).
+    // Todos los productos se resuelven antes de escribir: si alguno no existe no se aplica ningún cambio.
+    @Transactional
+    public List<CartItem> applyBatch(Long userId, List<CartItemRequest> items) throws Exception {
+        // Agrupamos por producto para enviar una sola línea por producto (conservando el orden recibido)
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        for (CartItemRequest item : items) {
+            if (item.getProductId() == null) {
+                throw new Exception("Cada línea debe indicar productId.");
+            }
+            deltas.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+
+        CatalogSnapshot catalog = productService.getCatalog();
+        List<Long> missing = deltas.keySet().stream().filter(id -> !catalog.contains(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new Exception("Productos no encontrados con ID: " + missing);
+        }
+
+        // Si alguna reserva falla, la transacción se revierte y se devuelven las ya hechas
+        List<QuantityDelta> lines = new ArrayList<>(deltas.size());
+        deltas.forEach((productId, delta) -> {
+            if (delta != 0) {
+                Product product = catalog.getProduct(productId);
+                if (delta > 0) {
+                    stockReservationService.reserve(userId, product, delta);
+                } else {
+                    stockReservationService.release(userId, productId, -delta);
+                }
+                lines.add(new QuantityDelta(productId, product.getName(), product.getPrice(), delta));
             }
-            existingItem.setQuantity(newQuantity);
-            return cartItemRepository.save(existingItem);
-
-        } else if (quantity > 0) {
-            // El producto es nuevo y la cantidad es positiva: Creamos un nuevo ítem
-            CartItem newItem = new CartItem(
-                    productId,
-                    product.getName(),
-                    product.getPrice(),
-                    quantity
-            );
-            return cartItemRepository.save(newItem);
+        });
+        if (!lines.isEmpty()) {
+            cartItemRepository.upsertQuantities(userId, lines);
         }
 
-        return null; // No se hace nada si se intenta añadir 0 o menos de un producto nuevo
+        return cartItemRepository.findByUserIdOrderByIdAsc(userId);
+    }
+
+    // 3. Eliminar un ítem por completo del carrito (solo si es del usuario)
+    @Transactional
+    public boolean removeItem(Long userId, Long id) {
+        Optional<CartItem> line = cartItemRepository.findById(id).filter(item -> userId.equals(item.getUserId()));
+        if (line.isEmpty() || cartItemRepository.deleteByIdAndUserId(id, userId) == 0) {
+            return false;
+        }
+        stockReservationService.releaseAll(userId, line.get().getProductId());
+        return true;
     }
 
-    // 3. Eliminar un ítem por completo del carrito
-    public void removeItem(Long id) {
-        cartItemRepository.deleteById(id);
+    // 4. Vaciar todo el carrito del usuario
+    @Transactional
+    public void clearCart(Long userId) {
+        List<CartItem> lines = cartItemRepository.findByUserIdOrderByIdAsc(userId);
+        cartItemRepository.deleteByUserId(userId);
+        for (CartItem line : lines) {
+            stockReservationService.releaseAll(userId, line.getProductId());
+        }
     }
 
-    // 4. Vaciar todo el carrito
-    public void clearCart() {
-        cartItemRepository.deleteAll();
+    // 5. Calcular el total: lo suma la base de datos (SUM sobre las líneas del usuario), sin traer las filas
+    public long getTotalPrice(Long userId) {
+        return getTotals(userId).getTotal();
     }
 
-    // 5. Opcional: Calcular el total
-    public double getTotalPrice() {
-        return cartItemRepository.findAll().stream()
-                .mapToDouble(item -> item.getUnitPrice() * item.getQuantity())
-                .sum();
+    // 6. Total y cantidad de unidades del carrito
+    public CartTotals getTotals(Long userId) {
+        return cartItemRepository.getTotals(userId);
     }
 }
@@ -0,0 +1,105 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Copia inmutable y versionada del catálogo completo en memoria, ordenada por ID.
+ * Cada escritura crea un snapshot nuevo (copy-on-write): las lecturas nunca se bloquean
+ * y siempre ven un catálogo consistente.
+ */
+public final class CatalogSnapshot {
+
+    private final long version;
+    private final Map<Long, Product> byId;
+    private final List<Product> products;
+    // Porción del catálogo por categoría (ordenada por ID), para las páginas de categoría
+    private final Map<Long, List<Product>> byCategory;
+
+    // JSON/gzip del snapshot; se genera en la primera respuesta HTTP que lo necesite
+    private volatile RenderedCatalog rendered;
+
+    private CatalogSnapshot(long version, TreeMap<Long, Product> byId) {
+        this.version = version;
+        this.byId = Collections.unmodifiableMap(byId);
+        this.products = List.copyOf(byId.values());
+        this.byCategory = products.stream()
+                .filter(product -> product.getCategoryId() != null)
+                .collect(Collectors.collectingAndThen(
+                        Collectors.groupingBy(Product::getCategoryId, HashMap::new, Collectors.toUnmodifiableList()),
+                        Collections::unmodifiableMap));
+    }
+
+    public static CatalogSnapshot of(long version, Collection<Product> products) {
+        TreeMap<Long, Product> byId = new TreeMap<>();
+        for (Product product : products) {
+            byId.put(product.getId(), product);
+        }
+        return new CatalogSnapshot(version, byId);
+    }
+
+    // Nuevo snapshot (versión siguiente) con el producto agregado o reemplazado
+    public CatalogSnapshot withProduct(Product product) {
+        TreeMap<Long, Product> copy = new TreeMap<>(byId);
+        copy.put(product.getId(), product);
+        return new CatalogSnapshot(version + 1, copy);
+    }
+
+    // Nuevo snapshot (versión siguiente) sin el producto indicado
+    public CatalogSnapshot withoutProduct(Long id) {
+        TreeMap<Long, Product> copy = new TreeMap<>(byId);
+        copy.remove(id);
+        return new CatalogSnapshot(version + 1, copy);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    RenderedCatalog getRendered() {
+        return rendered;
+    }
+
+    void setRendered(RenderedCatalog rendered) {
+        this.rendered = rendered;
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * Productos de las categorías indicadas, ordenados por ID.
+     */
+    public List<Product> getProductsByCategories(Collection<Long> categoryIds) {
+        if (categoryIds.size() == 1) {
+            return byCategory.getOrDefault(categoryIds.iterator().next(), List.of());
+        }
+        List<Product> result = new ArrayList<>();
+        categoryIds.stream().distinct()
+                .forEach(categoryId -> result.addAll(byCategory.getOrDefault(categoryId, List.of())));
+        result.sort(Comparator.comparing(Product::getId));
+        return result;
+    }
+
+    public Product getProduct(Long id) {
+        return byId.get(id);
+    }
+
+    public boolean contains(Long id) {
+        return byId.containsKey(id);
+    }
+
+    public int size() {
+        return products.size();
+    }
+}
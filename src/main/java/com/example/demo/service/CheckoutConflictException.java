@@ -0,0 +1,12 @@
+package com.example.demo.service;
+
+/**
+ * Se lanza cuando el carrito cambió mientras se confirmaba la compra (otro checkout del mismo usuario lo vació).
+ * Es RuntimeException para que el pedido y el stock consumido se reviertan; el controlador la traduce a HTTP 409.
+ */
+public class CheckoutConflictException extends RuntimeException {
+
+    public CheckoutConflictException(String message) {
+        super(message);
+    }
+}
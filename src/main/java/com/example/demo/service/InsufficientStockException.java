@@ -0,0 +1,26 @@
+package com.example.demo.service;
+
+/**
+ * Se lanza cuando no quedan unidades disponibles (stock menos reservas) para cubrir lo pedido.
+ * Es RuntimeException para que la transacción del carrito se revierta; los controladores la traducen a HTTP 409.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final Long productId;
+    private final int available;
+
+    public InsufficientStockException(Long productId, int requested, int available) {
+        super("Stock insuficiente para el producto " + productId
+                + ": se pidieron " + requested + " y quedan " + available + " disponibles.");
+        this.productId = productId;
+        this.available = available;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public int getAvailable() {
+        return available;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+// Consumidor por defecto: deja constancia de cada evento en el log
+@Component
+public class LoggingOrderEventConsumer implements OrderEventConsumer {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingOrderEventConsumer.class);
+
+    @Override
+    public void onOrderEvent(OrderEvent event) {
+        log.info("Evento {} del pedido {} (evento #{})", event.getType(), event.getOrderId(), event.getEventId());
+    }
+}
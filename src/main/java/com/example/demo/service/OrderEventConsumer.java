@@ -0,0 +1,14 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderEvent;
+
+/**
+ * Efecto secundario de un pedido (notificaciones, analítica, integración con otros sistemas).
+ * OutboxDispatcher llama a todos los beans que implementan esta interfaz, en segundo plano y en orden por pedido.
+ * La entrega es "al menos una vez": si un consumidor falla, el evento se reintenta para todos,
+ * así que cada implementación debe tolerar repetidos (por ejemplo, usando getEventId()).
+ */
+public interface OrderEventConsumer {
+
+    void onOrderEvent(OrderEvent event) throws Exception;
+}
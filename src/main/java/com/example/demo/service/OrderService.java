@@ -0,0 +1,146 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CheckoutResult;
+import com.example.demo.model.CartItem;
+import com.example.demo.model.IdempotencyRecord;
+import com.example.demo.model.Order;
+import com.example.demo.model.OutboxEvent;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CartItemRepository;
+import com.example.demo.repository.IdempotencyRecordRepository;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// Checkout: convierte el carrito del usuario en un pedido inmutable
+@Service
+public class OrderService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Cuánto tiempo (y cuántas) Idempotency-Key se recuerdan
+    @Value("${orders.idempotency.ttl-ms:86400000}")
+    private long idempotencyTtlMs;
+
+    @Value("${orders.idempotency.max-entries:100000}")
+    private int idempotencyMaxEntries;
+
+    /**
+     * Crea el pedido con los precios guardados en el carrito, descuenta el stock reservado y vacía el carrito,
+     * todo en una transacción (si algo falla, las reservas consumidas vuelven a su lugar).
+     * Las filas del carrito se leen bloqueadas, así que checkouts concurrentes del mismo usuario se serializan:
+     * el primero crea el pedido y los demás encuentran el carrito vacío.
+     * En la misma transacción se escribe el evento OrderPlaced en outbox_event; los efectos secundarios
+     * los ejecuta OutboxDispatcher después, así que el checkout no espera a ningún consumidor.
+     * Con 'idempotencyKey', un reintento con la misma clave devuelve el pedido ya creado sin repetir el trabajo.
+     * Si otra petición con la misma clave está en curso, el insert de la clave espera a que termine y falla
+     * con DataIntegrityViolationException; el controlador responde entonces con findReplay.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public CheckoutResult checkout(Long userId, String idempotencyKey) throws Exception {
+        IdempotencyRecord record = null;
+        if (idempotencyKey != null) {
+            if (idempotencyKey.isBlank() || idempotencyKey.length() > IdempotencyRecord.MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("Idempotency-Key debe tener entre 1 y "
+                        + IdempotencyRecord.MAX_KEY_LENGTH + " caracteres.");
+            }
+            Optional<Order> previous = findReplay(userId, idempotencyKey);
+            if (previous.isPresent()) {
+                return new CheckoutResult(previous.get(), true);
+            }
+            // Reclamamos la clave antes de hacer el trabajo caro
+            record = idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(userId, idempotencyKey));
+        }
+
+        // Bloqueo de las filas del carrito: dos checkouts del mismo carrito no pueden crear dos pedidos
+        List<CartItem> items = cartItemRepository.findByUserIdForUpdate(userId);
+        if (items.isEmpty()) {
+            throw new Exception("El carrito está vacío.");
+        }
+
+        for (CartItem item : items) {
+            Product product = productService.findProductById(item.getProductId())
+                    .orElseThrow(() -> new Exception("El producto " + item.getProductName() + " ya no está disponible."));
+            stockReservationService.commit(userId, product, item.getQuantity());
+        }
+
+        Order order = orderRepository.save(new Order(userId, items));
+        // Si no se borraron exactamente las líneas leídas, el carrito cambió: se revierte pedido y stock
+        if (cartItemRepository.deleteByUserId(userId) != items.size()) {
+            throw new CheckoutConflictException("El carrito cambió durante la compra, reintente.");
+        }
+        outboxEventRepository.save(new OutboxEvent("Order", order.getId(), "OrderPlaced", toPayload(order)));
+        if (record != null) {
+            record.setOrderId(order.getId());
+        }
+        return new CheckoutResult(order, false);
+    }
+
+    private String toPayload(Order order) throws Exception {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("orderId", order.getId());
+        payload.put("userId", order.getUserId());
+        payload.put("total", order.getTotal());
+        payload.put("itemCount", order.getItemCount());
+        payload.put("createdAt", order.getCreatedAt().toString());
+        payload.put("lines", order.getLines());
+        return objectMapper.writeValueAsString(payload);
+    }
+
+    // El pedido que ya produjo esta Idempotency-Key, si existe
+    @Transactional(readOnly = true)
+    public Optional<Order> findReplay(Long userId, String idempotencyKey) {
+        return idempotencyRecordRepository.findByUserIdAndKey(userId, idempotencyKey)
+                .map(IdempotencyRecord::getOrderId)
+                .flatMap(orderId -> orderRepository.findByIdAndUserId(orderId, userId));
+    }
+
+    public List<Order> findOrders(Long userId) {
+        return orderRepository.findByUserIdOrderByIdDesc(userId);
+    }
+
+    public Optional<Order> findOrder(Long userId, Long orderId) {
+        return orderRepository.findByIdAndUserId(orderId, userId);
+    }
+
+    // Mantiene acotada la tabla de claves: borra las vencidas y, si aun así sobran, las más antiguas
+    @Scheduled(fixedDelayString = "${orders.idempotency.purge-ms:600000}")
+    public void purgeIdempotencyKeys() {
+        idempotencyRecordRepository.deleteCreatedBefore(Instant.now().minusMillis(idempotencyTtlMs));
+        List<Instant> oldestKept = idempotencyRecordRepository.findNewestCreatedAt(PageRequest.of(idempotencyMaxEntries, 1));
+        if (!oldestKept.isEmpty()) {
+            idempotencyRecordRepository.deleteCreatedBefore(oldestKept.get(0));
+        }
+    }
+}
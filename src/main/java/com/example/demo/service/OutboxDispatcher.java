@@ -0,0 +1,129 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderEvent;
+import com.example.demo.model.OutboxEvent;
+import com.example.demo.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Entrega en segundo plano los eventos de outbox_event a los OrderEventConsumer.
+ * Cada ciclo lee un lote de pendientes ya vencidos en orden de ID dentro de una transacción: los eventos quedan
+ * gestionados y los cambios de estado se escriben al confirmar, con UPDATEs en batch JDBC y sin releer cada fila.
+ * Orden por agregado: si un evento de un pedido está esperando su backoff o se abandonó (FAILED), los siguientes
+ * del mismo pedido no se entregan; los eventos en backoff no ocupan lugar en el lote, así no bloquean a los demás
+ * pedidos. Los reintentos esperan backoff-initial-ms * 2^(intentos-1), hasta backoff-max-ms.
+ * Pensado para una sola instancia (el scheduler de Spring ejecuta un ciclo a la vez).
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private List<OrderEventConsumer> consumers;
+
+    @Value("${outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${outbox.backoff-initial-ms:1000}")
+    private long backoffInitialMs;
+
+    @Value("${outbox.backoff-max-ms:300000}")
+    private long backoffMaxMs;
+
+    @Value("${outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${outbox.retention-ms:604800000}")
+    private long retentionMs;
+
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong failedAttemptCount = new AtomicLong();
+    private final AtomicLong abandonedCount = new AtomicLong();
+
+    // Un ciclo de entrega; devuelve cuántos eventos se entregaron
+    @Scheduled(fixedDelayString = "${outbox.dispatch-ms:500}", initialDelayString = "${outbox.dispatch-ms:500}")
+    @Transactional
+    public int dispatch() {
+        Instant now = Instant.now();
+        List<OutboxEvent> batch = outboxEventRepository.findDeliverable(now, Limit.of(batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> blocked = new HashSet<>(); // Agregados con un evento que falló o se abandonó en este ciclo
+        int delivered = 0;
+        for (OutboxEvent event : batch) {
+            String aggregate = event.getAggregateType() + ":" + event.getAggregateId();
+            if (blocked.contains(aggregate)) {
+                continue;
+            }
+            try {
+                OrderEvent orderEvent = new OrderEvent(event.getId(), event.getEventType(), event.getAggregateId(), event.getPayload());
+                for (OrderEventConsumer consumer : consumers) {
+                    consumer.onOrderEvent(orderEvent);
+                }
+                event.markDone(now);
+                delivered++;
+            } catch (Exception e) {
+                failedAttemptCount.incrementAndGet();
+                boolean giveUp = event.getAttempts() + 1 >= maxAttempts;
+                event.markFailed(e.toString(), now.plusMillis(backoffFor(event.getAttempts() + 1)), giveUp);
+                blocked.add(aggregate);
+                if (giveUp) {
+                    abandonedCount.incrementAndGet();
+                    log.error("Evento de outbox #{} abandonado tras {} intentos", event.getId(), event.getAttempts(), e);
+                } else {
+                    log.warn("Evento de outbox #{} falló (intento {}), se reintentará: {}", event.getId(), event.getAttempts(), e.toString());
+                }
+            }
+        }
+        deliveredCount.addAndGet(delivered);
+        return delivered;
+    }
+
+    // Borra los eventos entregados hace más de 'outbox.retention-ms' para que la tabla no crezca sin límite
+    @Scheduled(fixedDelayString = "${outbox.purge-ms:3600000}", initialDelayString = "${outbox.purge-ms:3600000}")
+    public void purgeDelivered() {
+        outboxEventRepository.deleteDoneBefore(Instant.now().minusMillis(retentionMs));
+    }
+
+    private long backoffFor(int attempts) {
+        int exponent = Math.min(attempts - 1, 30);
+        return Math.min(backoffInitialMs << exponent, backoffMaxMs);
+    }
+
+    // --- Estadísticas ---
+
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    public long getFailedAttemptCount() {
+        return failedAttemptCount.get();
+    }
+
+    public long getAbandonedCount() {
+        return abandonedCount.get();
+    }
+
+    public long getPendingCount() {
+        return outboxEventRepository.countByStatus(OutboxEvent.Status.PENDING);
+    }
+}
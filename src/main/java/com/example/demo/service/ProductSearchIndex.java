@@ -0,0 +1,209 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria sobre el nombre y la descripción de los productos.
+ * - Plegado de acentos y minúsculas: "Plátanos" y "platanos" son el mismo término.
+ * - Cada término de la consulta se busca por prefijo (typeahead): "pla" encuentra "plátanos".
+ * - Ranking: coincidencias en el nombre pesan más que en la descripción, y se pondera por rating.
+ * ProductService lo mantiene actualizado en cada alta, cambio o baja de producto.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+    // Bonus cuando el término de la consulta coincide completo (no solo como prefijo)
+    private static final double EXACT_BONUS = 1.0;
+
+    // término -> IDs de productos que lo contienen (ordenado, para poder recorrer rangos de prefijo)
+    private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+    private final Map<Long, IndexedProduct> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Reconstruye el índice completo desde cero.
+     */
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            products.forEach(this::addLocked);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega el producto o reemplaza su versión anterior.
+     */
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            addLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * IDs de los productos que contienen todos los términos de la consulta (por prefijo),
+     * ordenados por relevancia.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Double> scores = null;
+            for (String term : new LinkedHashSet<>(queryTerms)) {
+                Map<Long, Double> termScores = scoreTerm(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Semántica AND: solo sobreviven los productos que coinciden con todos los términos
+                    scores.keySet().retainAll(termScores.keySet());
+                    final Map<Long, Double> current = termScores;
+                    scores.replaceAll((id, score) -> score + current.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.size());
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                double rating = documents.get(entry.getKey()).rating;
+                ranked.add(Map.entry(entry.getKey(), entry.getValue() * (1.0 + rating / 5.0)));
+            }
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+
+            return ranked.stream().limit(limit).map(Map.Entry::getKey).toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Minúsculas y sin acentos ("Plátanos" -> "platanos").
+     */
+    static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(TOKEN_SEPARATOR.split(fold(text)))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    // Puntaje de cada producto para un término de consulta, sumando todos los términos indexados que empiezan con él
+    private Map<Long, Double> scoreTerm(String queryTerm) {
+        Map<Long, Double> scores = new HashMap<>();
+        SortedMap<String, Set<Long>> matches = postings.subMap(queryTerm, queryTerm + Character.MAX_VALUE);
+        for (Map.Entry<String, Set<Long>> posting : matches.entrySet()) {
+            String term = posting.getKey();
+            boolean exact = term.equals(queryTerm);
+            for (Long id : posting.getValue()) {
+                IndexedProduct doc = documents.get(id);
+                double score = 0;
+                if (doc.nameTerms.contains(term)) {
+                    score += NAME_WEIGHT;
+                }
+                if (doc.descriptionTerms.contains(term)) {
+                    score += DESCRIPTION_WEIGHT;
+                }
+                if (exact) {
+                    score += EXACT_BONUS;
+                }
+                scores.merge(id, score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void addLocked(Product product) {
+        IndexedProduct doc = new IndexedProduct(
+                new HashSet<>(tokenize(product.getName())),
+                new HashSet<>(tokenize(product.getDescription())),
+                product.getRating() != null ? product.getRating() : 0.0);
+        documents.put(product.getId(), doc);
+
+        for (String term : doc.allTerms()) {
+            postings.computeIfAbsent(term, t -> new HashSet<>()).add(product.getId());
+        }
+    }
+
+    private void removeLocked(Long productId) {
+        IndexedProduct doc = documents.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.allTerms()) {
+            Set<Long> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(productId);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private static final class IndexedProduct {
+        private final Set<String> nameTerms;
+        private final Set<String> descriptionTerms;
+        private final double rating;
+
+        private IndexedProduct(Set<String> nameTerms, Set<String> descriptionTerms, double rating) {
+            this.nameTerms = nameTerms;
+            this.descriptionTerms = descriptionTerms;
+            this.rating = rating;
+        }
+
+        private Set<String> allTerms() {
+            Set<String> all = new HashSet<>(nameTerms);
+            all.addAll(descriptionTerms);
+            return all;
+        }
+    }
+}
@@ -1,35 +1,433 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.ProductPage;
 import com.example.demo.model.Product;
 import com.example.demo.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class ProductService {
 
+    // Campos por los que se puede ordenar el listado paginado (cada uno tiene índice en 'products')
+    public static final List<String> PAGE_SORT_FIELDS = List.of("id", "name", "price", "rating");
+    public static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    // Caché read-through del catálogo: se carga en la primera lectura y las escrituras la actualizan
+    private final AtomicReference<CatalogSnapshot> catalog = new AtomicReference<>();
+    // Serializa las escrituras (BD + snapshot + índice de búsqueda); las lecturas no toman el lock.
+    // ReentrantLock y no synchronized: la carga desde la BD con el lock tomado no fija el hilo portador de un hilo virtual.
+    private final ReentrantLock catalogLock = new ReentrantLock();
+    // Versión del último snapshot publicado (sigue creciendo aunque el catálogo se invalide)
+    private long lastVersion = 0;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong cacheEvictions = new AtomicLong();
+
     // C - Create & U - Update
+    // La escritura en BD y la del snapshot/índice van bajo el mismo lock: un delete intercalado
+    // no puede quedar detrás y dejar publicado un producto que ya no existe (ni al revés).
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        catalogLock.lock();
+        try {
+            Product saved = productRepository.save(product);
+            CatalogSnapshot current = catalog.get();
+            if (current != null) {
+                if (current.contains(saved.getId())) {
+                    cacheEvictions.incrementAndGet(); // Se reemplaza la versión anterior
+                }
+                publish(current.withProduct(saved));
+                searchIndex.index(saved);
+            }
+            return saved;
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    // El stock físico cambió por ventas (write-behind de StockReservationService): se publica un snapshot
+    // con copias de los productos afectados, sin mutar las instancias que ya están en el snapshot actual
+    @EventListener
+    public void onStockFlushed(StockFlushedEvent event) {
+        catalogLock.lock();
+        try {
+            CatalogSnapshot current = catalog.get();
+            if (current == null) {
+                return; // Se cargará desde la BD, que ya tiene el stock nuevo
+            }
+            CatalogSnapshot next = current;
+            for (Map.Entry<Long, Integer> entry : event.stockByProduct().entrySet()) {
+                Product cached = next.getProduct(entry.getKey());
+                if (cached != null && cached.getStock() != entry.getValue()) {
+                    Product updated = copyOf(cached);
+                    updated.setStock(entry.getValue());
+                    next = next.withProduct(updated);
+                }
+            }
+            if (next != current) {
+                cacheEvictions.incrementAndGet();
+                publish(next);
+            }
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    // U - Update (PUT): parte de la fila en BD, no de la instancia cacheada, para no mutar el snapshot
+    // Lectura y escritura bajo catalogLock (reentrante con saveProduct): un delete entre ambas no se "resucita".
+    public Optional<Product> updateProduct(Long id, Product productDetails) {
+        catalogLock.lock();
+        try {
+            return updateLocked(id, productDetails);
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    private Optional<Product> updateLocked(Long id, Product productDetails) {
+        Optional<Product> existingProduct = productRepository.findById(id);
+        if (existingProduct.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Product product = existingProduct.get();
+        // Actualizamos todos los campos del nuevo modelo
+        product.setName(productDetails.getName());
+        product.setDescription(productDetails.getDescription());
+        product.setPrice(productDetails.getPrice());
+        product.setStock(productDetails.getStock());
+        product.setUnit(productDetails.getUnit());
+        product.setImageRes(productDetails.getImageRes());
+        product.setRating(productDetails.getRating());
+        product.setCategoryId(productDetails.getCategoryId());
+
+        Product saved = saveProduct(product);
+        stockReservationService.onStockChanged(saved.getId(), saved.getStock());
+        return Optional.of(saved);
     }
 
     // R - Read All
     public List<Product> findAllProducts() {
-        return productRepository.findAll();
+        return getCatalog().getProducts();
+    }
+
+    // R - Read por categoría (una o varias), desde la porción del snapshot de cada categoría
+    public List<Product> findProductsByCategories(Collection<Long> categoryIds) {
+        return getCatalog().getProductsByCategories(categoryIds);
+    }
+
+    // R - Búsqueda de texto sobre nombre y descripción (índice invertido en memoria, sin LIKE en la BD)
+    public List<Product> searchProducts(String query, int limit) {
+        CatalogSnapshot current = getCatalog(); // Garantiza que el índice esté construido
+        return searchIndex.search(query, Math.min(limit, MAX_PAGE_SIZE)).stream()
+                .map(current::getProduct)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
-    // R - Read By ID
+    // R - Read By ID (el snapshot contiene todo el catálogo: si no está ahí, no existe)
     public Optional<Product> findProductById(Long id) {
-        return productRepository.findById(id);
+        return Optional.ofNullable(getCatalog().getProduct(id));
+    }
+
+    // --- Lectura no bloqueante (Mono/Flux) sobre el mismo snapshot ---
+
+    /**
+     * Como getCatalog, pero sin bloquear al que se suscribe: si el snapshot está cargado se resuelve en el acto;
+     * si no, la carga desde la BD corre en boundedElastic y el hilo del request queda libre mientras tanto.
+     */
+    public Mono<CatalogSnapshot> getCatalogAsync() {
+        CatalogSnapshot current = catalog.get();
+        if (current != null) {
+            cacheHits.incrementAndGet();
+            return Mono.just(current);
+        }
+        return Mono.fromCallable(this::getCatalog).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Productos del snapshot uno a uno (todas las categorías si 'categoryIds' es null o vacío)
+    public Flux<Product> streamProducts(Collection<Long> categoryIds) {
+        return getCatalogAsync().flatMapIterable(snapshot -> categoryIds == null || categoryIds.isEmpty()
+                ? snapshot.getProducts()
+                : snapshot.getProductsByCategories(categoryIds));
+    }
+
+    // Vacío si el producto no existe
+    public Mono<Product> findProductByIdAsync(Long id) {
+        return getCatalogAsync().mapNotNull(snapshot -> snapshot.getProduct(id));
     }
 
     // D - Delete
     public void deleteProduct(Long id) {
-        productRepository.deleteById(id);
+        catalogLock.lock();
+        try {
+            productRepository.deleteById(id);
+            stockReservationService.onProductDeleted(id);
+            CatalogSnapshot current = catalog.get();
+            if (current != null && current.contains(id)) {
+                publish(current.withoutProduct(id));
+                searchIndex.remove(id);
+                cacheEvictions.incrementAndGet();
+            }
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    /**
+     * Página del catálogo ordenada por 'sortField' usando paginación keyset.
+     * El desempate siempre es por ID, así el orden es total y el cursor no salta ni repite filas.
+     * Los productos sin valor en el campo (nombre o rating NULL) van al final, en ambas direcciones.
+     * Si 'categoryIds' no es vacío, solo se recorren las filas de esas categorías.
+     * Lanza IllegalArgumentException si el orden o el cursor no son válidos.
+     */
+    public ProductPage findProductPage(Collection<Long> categoryIds, String sortField, String direction, int size, String cursor) {
+        if (!PAGE_SORT_FIELDS.contains(sortField)) {
+            throw new IllegalArgumentException("No se puede ordenar por '" + sortField + "'. Valores permitidos: " + PAGE_SORT_FIELDS);
+        }
+        Sort.Direction sortDirection = Sort.Direction.fromString(direction);
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        Map<String, Object> after = cursor == null || cursor.isBlank()
+                ? Map.of()
+                : decodeCursor(cursor, sortField, sortDirection);
+
+        // Se pide una fila de más para saber si hay página siguiente
+        List<Product> rows = productRepository.findPageAfter(categoryIds, sortField, sortDirection.isAscending(),
+                after.get(sortField), (Long) after.get("id"), pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Product last = rows.get(pageSize - 1);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put(sortField, sortValue(last, sortField));
+            keys.put("id", last.getId());
+            nextCursor = encodeCursor(sortField, sortDirection, keys);
+        }
+        return new ProductPage(rows, pageSize, nextCursor);
+    }
+
+    private static Object sortValue(Product product, String sortField) {
+        return switch (sortField) {
+            case "id" -> product.getId();
+            case "name" -> product.getName();
+            case "price" -> product.getPrice();
+            case "rating" -> product.getRating();
+            default -> throw new IllegalArgumentException("No se puede ordenar por '" + sortField + "'.");
+        };
+    }
+
+    // El cursor es JSON en Base64 URL-safe: {"s": campo, "d": dirección, "k": claves del último elemento}
+    private String encodeCursor(String sortField, Sort.Direction direction, Map<String, Object> keys) {
+        Map<String, Object> cursor = new LinkedHashMap<>();
+        cursor.put("s", sortField);
+        cursor.put("d", direction.name());
+        cursor.put("k", keys);
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(cursor));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo generar el cursor.", e);
+        }
+    }
+
+    // El cursor viene del cliente: se valida el tipo de cada clave (un cursor alterado es un 400, no un 500)
+    private Map<String, Object> decodeCursor(String cursor, String sortField, Sort.Direction direction) {
+        Map<String, Object> decoded;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            decoded = objectMapper.readValue(new String(json, StandardCharsets.UTF_8), new TypeReference<>() {});
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Cursor inválido.");
+        }
+
+        if (decoded == null || !sortField.equals(decoded.get("s")) || !direction.name().equals(decoded.get("d"))
+                || !(decoded.get("k") instanceof Map<?, ?> rawKeys)) {
+            throw new IllegalArgumentException("El cursor no corresponde al orden solicitado.");
+        }
+        // Con sort=id el cursor solo lleva "id" (Set.of no admite el elemento repetido)
+        Set<String> expectedKeys = sortField.equals("id") ? Set.of("id") : Set.of(sortField, "id");
+        if (!rawKeys.keySet().equals(expectedKeys)) {
+            throw new IllegalArgumentException("Cursor inválido.");
+        }
+
+        // JSON pierde los tipos: los restauramos según el campo para que coincidan con la entidad
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("id", integral(rawKeys.get("id"), Long.MIN_VALUE, Long.MAX_VALUE));
+        Object value = rawKeys.get(sortField);
+        switch (sortField) {
+            case "id" -> { }
+            case "price" -> keys.put(sortField, (int) integral(value, Integer.MIN_VALUE, Integer.MAX_VALUE));
+            case "rating" -> {
+                if (value != null && !(value instanceof Number)) {
+                    throw new IllegalArgumentException("Cursor inválido.");
+                }
+                keys.put(sortField, value == null ? null : ((Number) value).doubleValue());
+            }
+            case "name" -> {
+                if (value != null && !(value instanceof String)) {
+                    throw new IllegalArgumentException("Cursor inválido.");
+                }
+                keys.put(sortField, value);
+            }
+            default -> throw new IllegalArgumentException("Cursor inválido.");
+        }
+        return keys;
+    }
+
+    private static long integral(Object value, long min, long max) {
+        if (!(value instanceof Integer || value instanceof Long)
+                || ((Number) value).longValue() < min || ((Number) value).longValue() > max) {
+            throw new IllegalArgumentException("Cursor inválido.");
+        }
+        return ((Number) value).longValue();
+    }
+
+    /**
+     * Snapshot actual del catálogo; lo carga desde la base de datos si todavía no existe.
+     */
+    public CatalogSnapshot getCatalog() {
+        CatalogSnapshot current = catalog.get();
+        if (current != null) {
+            cacheHits.incrementAndGet();
+            return current;
+        }
+        catalogLock.lock();
+        try {
+            current = catalog.get();
+            if (current == null) {
+                cacheMisses.incrementAndGet();
+                current = CatalogSnapshot.of(lastVersion + 1, productRepository.findAll());
+                searchIndex.rebuild(current.getProducts());
+                publish(current);
+            } else {
+                cacheHits.incrementAndGet();
+            }
+            return current;
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    /**
+     * JSON (y gzip) del catálogo actual con su ETag. Se serializa una sola vez por versión del snapshot,
+     * no una vez por request.
+     */
+    public RenderedCatalog getRenderedCatalog() {
+        CatalogSnapshot current = getCatalog();
+        RenderedCatalog rendered = current.getRendered();
+        if (rendered == null) {
+            // Si dos hilos llegan a la vez ambos serializan lo mismo; el resultado es idéntico
+            rendered = render(current);
+            current.setRendered(rendered);
+        }
+        return rendered;
+    }
+
+    private static Product copyOf(Product product) {
+        Product copy = new Product(product.getName(), product.getPrice(), product.getUnit(), product.getStock(),
+                product.getImageRes(), product.getDescription(), product.getRating(), product.getCategoryId());
+        copy.setId(product.getId());
+        copy.setImageUrl(product.getImageUrl());
+        return copy;
+    }
+
+    // Debe llamarse con catalogLock tomado
+    private void publish(CatalogSnapshot next) {
+        lastVersion = next.getVersion();
+        catalog.set(next);
+    }
+
+    private RenderedCatalog render(CatalogSnapshot snapshot) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(snapshot.getProducts());
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+                gzip.write(json);
+            }
+
+            // ETag fuerte derivado del contenido: sigue siendo correcto tras reiniciar el servidor
+            String hash = Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(MessageDigest.getInstance("SHA-256").digest(json))
+                    .substring(0, 22);
+            return new RenderedCatalog(json, buffer.toByteArray(), "\"" + hash + "\"", "\"" + hash + "-gzip\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catálogo.", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no está disponible en esta JVM.", e);
+        }
+    }
+
+    /**
+     * Descarta el snapshot; la siguiente lectura lo recarga desde la base de datos
+     * (útil si los productos se modificaron sin pasar por este servicio).
+     */
+    public void invalidateCatalog() {
+        catalogLock.lock();
+        try {
+            CatalogSnapshot previous = catalog.getAndSet(null);
+            if (previous != null) {
+                cacheEvictions.addAndGet(previous.size());
+            }
+        } finally {
+            catalogLock.unlock();
+        }
+    }
+
+    // --- Estadísticas de la caché ---
+
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMissCount() {
+        return cacheMisses.get();
+    }
+
+    public long getCacheEvictionCount() {
+        return cacheEvictions.get();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package com.example.demo.service;
+
+/**
+ * Representación HTTP ya serializada de un CatalogSnapshot: el JSON, su variante gzip
+ * y el ETag fuerte de cada una. Se genera una sola vez por versión del catálogo.
+ */
+public final class RenderedCatalog {
+
+    private final byte[] json;
+    private final byte[] gzipJson;
+    private final String etag;
+    private final String gzipEtag;
+
+    RenderedCatalog(byte[] json, byte[] gzipJson, String etag, String gzipEtag) {
+        this.json = json;
+        this.gzipJson = gzipJson;
+        this.etag = etag;
+        this.gzipEtag = gzipEtag;
+    }
+
+    // Los arrays se comparten entre requests: quien los use no debe modificarlos
+    public byte[] getJson() {
+        return json;
+    }
+
+    public byte[] getGzipJson() {
+        return gzipJson;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getGzipEtag() {
+        return gzipEtag;
+    }
+}
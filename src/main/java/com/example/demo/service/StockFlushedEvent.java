@@ -0,0 +1,8 @@
+package com.example.demo.service;
+
+import java.util.Map;
+
+// Publicado por StockReservationService tras persistir el stock físico (ID de producto -> nuevo stock),
+// para que ProductService actualice el snapshot del catálogo sin volver a leer la BD
+public record StockFlushedEvent(Map<Long, Integer> stockByProduct) {
+}
@@ -0,0 +1,336 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reservas de stock en memoria.
+ * Cada producto tiene dos contadores atómicos: 'onHand' (unidades físicas, lo que se persiste en products.stock)
+ * y 'available' (onHand menos lo reservado por carritos). Reservar es un CAS sobre 'available', así que muchos
+ * usuarios comprando el mismo producto no se serializan en el lock de la fila de products.
+ * Los cambios de 'onHand' (ventas confirmadas) se escriben a la BD en segundo plano (write-behind).
+ *
+ * Las reservas de cada (usuario, producto) caducan si el carrito no se toca en 'stock.reservation.ttl-ms';
+ * la línea del carrito se mantiene y al confirmar la compra se vuelve a reservar lo que falte.
+ */
+@Service
+public class StockReservationService {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${stock.reservation.ttl-ms:900000}")
+    private long reservationTtlMs;
+
+    private final Map<Long, ProductStock> stocks = new ConcurrentHashMap<>();
+    private final Map<ReservationKey, Reservation> reservations = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+
+    /**
+     * Reserva 'quantity' unidades del producto para el usuario, o lanza InsufficientStockException.
+     * Si hay una transacción activa y se revierte, la reserva se devuelve automáticamente.
+     */
+    public void reserve(Long userId, Product product, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        ProductStock stock = stockOf(product);
+        int available = stock.tryReserve(quantity);
+        if (available >= 0) {
+            rejectedCount.incrementAndGet();
+            throw new InsufficientStockException(product.getId(), quantity, available);
+        }
+        ReservationKey key = new ReservationKey(userId, product.getId());
+        addToReservation(key, quantity);
+        afterRollback(() -> releaseNow(key, quantity));
+    }
+
+    /**
+     * Devuelve hasta 'quantity' unidades reservadas por el usuario (nunca más de lo que tiene reservado).
+     * Dentro de una transacción se aplica solo tras el commit: si se revierte, la reserva sigue intacta.
+     */
+    public void release(Long userId, Long productId, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        afterCommit(() -> releaseNow(new ReservationKey(userId, productId), quantity));
+    }
+
+    // Devuelve todo lo reservado por el usuario para ese producto (línea eliminada del carrito)
+    public void releaseAll(Long userId, Long productId) {
+        release(userId, productId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Confirma la venta de 'quantity' unidades: consume la reserva (reservando lo que falte si caducó)
+     * y descuenta 'onHand', que se persistirá en el próximo flush.
+     */
+    public void commit(Long userId, Product product, int quantity) {
+        ReservationKey key = new ReservationKey(userId, product.getId());
+        // Las unidades salen de la reserva sin volver a 'available': pasan a estar vendidas
+        int[] taken = new int[1];
+        reservations.computeIfPresent(key, (k, r) -> {
+            taken[0] = Math.min(r.quantity, quantity);
+            r.quantity -= taken[0];
+            return r.quantity > 0 ? r : null;
+        });
+        int reserved = taken[0];
+        int topUp = quantity - reserved;
+
+        ProductStock stock = stockOf(product);
+        if (topUp > 0) {
+            int available = stock.tryReserve(topUp);
+            if (available >= 0) {
+                addToReservation(key, reserved);
+                rejectedCount.incrementAndGet();
+                throw new InsufficientStockException(product.getId(), quantity, available + reserved);
+            }
+        }
+        stock.consume(quantity);
+
+        afterRollback(() -> {
+            stock.restore(quantity);
+            stock.release(topUp);
+            addToReservation(key, reserved);
+        });
+    }
+
+    // El administrador fija un nuevo stock físico: lo reservado se mantiene y 'available' se ajusta por la diferencia.
+    // El próximo flush lo reescribe en la BD por si un flush intercalado guardó el valor anterior.
+    public void onStockChanged(Long productId, int newStock) {
+        ProductStock stock = stocks.get(productId);
+        if (stock != null) {
+            stock.reset(newStock);
+        }
+    }
+
+    // El producto se eliminó: sus contadores dejan de tener sentido
+    public void onProductDeleted(Long productId) {
+        stocks.remove(productId);
+        reservations.keySet().removeIf(key -> key.productId().equals(productId));
+    }
+
+    // Unidades que aún se pueden reservar (stock de la BD si el producto no se ha tocado desde el arranque)
+    public int getAvailable(Product product) {
+        return stockOf(product).available.get();
+    }
+
+    // Libera las reservas que no se han tocado en 'stock.reservation.ttl-ms'
+    @Scheduled(fixedDelayString = "${stock.reservation.sweep-ms:30000}")
+    public void expireReservations() {
+        long cutoff = System.currentTimeMillis() - reservationTtlMs;
+        for (Map.Entry<ReservationKey, Reservation> entry : reservations.entrySet()) {
+            ReservationKey key = entry.getKey();
+            if (entry.getValue().touchedAt < cutoff) {
+                reservations.computeIfPresent(key, (k, r) -> {
+                    if (r.touchedAt >= cutoff) {
+                        return r; // Se tocó mientras recorríamos
+                    }
+                    ProductStock stock = stocks.get(k.productId());
+                    if (stock != null) {
+                        stock.release(r.quantity);
+                    }
+                    expiredCount.incrementAndGet();
+                    return null;
+                });
+            }
+        }
+    }
+
+    // Write-behind: persiste el stock físico de los productos con ventas desde el último flush
+    @Scheduled(fixedDelayString = "${stock.write-behind-ms:1000}")
+    public void flush() {
+        Map<Long, Integer> flushed = new HashMap<>();
+        stocks.forEach((productId, stock) -> {
+            if (!stock.dirty.get()) {
+                return;
+            }
+            // Mismo lock que reset() para leer 'onHand' y limpiar 'dirty' sin mezclarse con él. Un flush que corre
+            // entre el save del administrador y reset() sí puede escribir el valor viejo; reset() deja la entrada
+            // sucia para que el siguiente flush vuelva a escribir (y publicar) el nuevo.
+            // ReentrantLock y no synchronized, para no fijar el hilo portador durante el UPDATE si el scheduler es virtual.
+            stock.writeLock.lock();
+            try {
+                if (stock.dirty.getAndSet(false)) {
+                    try {
+                        int onHand = stock.onHand.get();
+                        productRepository.updateStock(productId, onHand);
+                        flushed.put(productId, onHand);
+                        flushCount.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        stock.dirty.set(true); // Se reintenta en el próximo ciclo
+                        throw e;
+                    }
+                }
+            } finally {
+                stock.writeLock.unlock();
+            }
+        });
+        if (!flushed.isEmpty()) {
+            eventPublisher.publishEvent(new StockFlushedEvent(flushed));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private ProductStock stockOf(Product product) {
+        return stocks.computeIfAbsent(product.getId(), id -> new ProductStock(product.getStock()));
+    }
+
+    private void releaseNow(ReservationKey key, int quantity) {
+        reservations.computeIfPresent(key, (k, r) -> {
+            int released = Math.min(r.quantity, quantity);
+            ProductStock stock = stocks.get(k.productId());
+            if (stock != null) {
+                stock.release(released);
+            }
+            r.quantity -= released;
+            r.touchedAt = System.currentTimeMillis();
+            return r.quantity > 0 ? r : null;
+        });
+    }
+
+    // Suma a la reserva del usuario unidades que ya están descontadas de 'available'
+    private void addToReservation(ReservationKey key, int quantity) {
+        if (quantity <= 0) {
+            return;
+        }
+        reservations.compute(key, (k, r) -> {
+            Reservation reservation = r != null ? r : new Reservation();
+            reservation.quantity += quantity;
+            reservation.touchedAt = System.currentTimeMillis();
+            return reservation;
+        });
+    }
+
+    private static void afterRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // --- Estadísticas ---
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public int getReservationCount() {
+        return reservations.size();
+    }
+
+    // Contadores de un producto
+    private static final class ProductStock {
+        final AtomicInteger onHand;
+        final AtomicInteger available;
+        final AtomicBoolean dirty = new AtomicBoolean();
+        final ReentrantLock writeLock = new ReentrantLock(); // flush() vs. reset()
+
+        ProductStock(int initial) {
+            this.onHand = new AtomicInteger(initial);
+            this.available = new AtomicInteger(initial);
+        }
+
+        // -1 si se reservó; si no, las unidades que había disponibles
+        int tryReserve(int quantity) {
+            while (true) {
+                int current = available.get();
+                if (current < quantity) {
+                    return Math.max(current, 0);
+                }
+                if (available.compareAndSet(current, current - quantity)) {
+                    return -1;
+                }
+            }
+        }
+
+        void release(int quantity) {
+            available.addAndGet(quantity);
+        }
+
+        // Las unidades ya estaban descontadas de 'available' por la reserva; ahora salen del stock físico
+        void consume(int quantity) {
+            onHand.addAndGet(-quantity);
+            dirty.set(true);
+        }
+
+        // Deshace consume(): las unidades vuelven a la reserva, así que 'available' no cambia
+        void restore(int quantity) {
+            onHand.addAndGet(quantity);
+            dirty.set(true);
+        }
+
+        void reset(int newOnHand) {
+            writeLock.lock();
+            try {
+                int delta = newOnHand - onHand.getAndSet(newOnHand);
+                available.addAndGet(delta);
+                // ProductService ya guardó el nuevo valor, pero un flush concurrente pudo pisarlo con el anterior
+                dirty.set(true);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private static final class Reservation {
+        int quantity;           // Protegidos por reservations.compute sobre la misma clave
+        volatile long touchedAt;
+    }
+
+    private record ReservationKey(Long userId, Long productId) {
+    }
+}
@@ -1,35 +1,135 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.ExpiringCache;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional; // Importación nueva
 
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
-    @Autowired
-    private UserRepository userRepository;
+    private final UserRepository userRepository;
+
+    // Caché de principals: evita ir a app_user/user_roles en cada request autenticado
+    private final ExpiringCache<String, User> userCache;
+    private final long cacheTtlMs;
+    // Generación por franja de usernames: evictUser la incrementa, y una carga que se cruzó con una invalidación
+    // no deja en la caché el principal que leyó antes (tamaño fijo, a diferencia de un mapa por usuario)
+    private final AtomicLongArray generations = new AtomicLongArray(64);
+
+    // Métricas de carga desde la base de datos
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong loadTimeNanos = new AtomicLong();
+
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  @Value("${auth.user-cache.max-entries:10000}") int maxEntries,
+                                  @Value("${auth.user-cache.ttl-ms:300000}") long cacheTtlMs) {
+        this.userRepository = userRepository;
+        this.userCache = new ExpiringCache<>(maxEntries);
+        this.cacheTtlMs = cacheTtlMs;
+    }
 
     // Método que Spring Security llama para cargar un usuario por su username (email)
     @Override
-    @Transactional // Buena práctica para asegurar que la sesión de JPA esté abierta
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
 
-        // El mensaje de error fue ajustado para reflejar que buscas por username
+        User cached = userCache.get(username);
+        if (cached != null) {
+            return cached;
+        }
+
+        int stripe = stripeOf(username);
+        long generation = generations.get(stripe);
+        long start = System.nanoTime();
+        // findByUsername trae los roles en la misma consulta (EntityGraph), no hace falta una transacción abierta
         Optional<User> userOptional = userRepository.findByUsername(username);
+        loadTimeNanos.addAndGet(System.nanoTime() - start);
+        loadCount.incrementAndGet();
 
         if (userOptional.isEmpty()) {
             throw new UsernameNotFoundException("Usuario no encontrado: " + username);
         }
 
-        // Devolvemos el objeto User (que implementa UserDetails)
-        return userOptional.get();
+        // Guardamos una copia desacoplada de la sesión JPA (roles ya materializados)
+        User principal = detachedCopy(userOptional.get());
+        if (generations.get(stripe) == generation) {
+            userCache.put(username, principal, System.currentTimeMillis() + cacheTtlMs);
+            // Una invalidación entre la comprobación y el put pudo llegar antes que él: se deshace
+            if (generations.get(stripe) != generation) {
+                userCache.invalidate(username);
+            }
+        }
+        return principal;
+    }
+
+    // Spring Security lo llama tras un login exitoso cuando el hash guardado usa un costo de BCrypt menor al actual
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = userRepository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Usuario no encontrado: " + user.getUsername()));
+        entity.setPassword(newPassword);
+        User saved = userRepository.save(entity);
+
+        evictUser(saved.getUsername());
+        return detachedCopy(saved);
+    }
+
+    /**
+     * Invalida el principal cacheado. Debe llamarse siempre que se escriba un User
+     * (registro, cambio de roles o de contraseña).
+     */
+    public void evictUser(String username) {
+        generations.incrementAndGet(stripeOf(username)); // Antes de invalidar: ver loadUserByUsername
+        userCache.invalidate(username);
+    }
+
+    public void evictAll() {
+        for (int i = 0; i < generations.length(); i++) {
+            generations.incrementAndGet(i);
+        }
+        userCache.invalidateAll();
+    }
+
+    private int stripeOf(String username) {
+        return Math.floorMod(username.hashCode(), generations.length());
+    }
+
+    private static User detachedCopy(User user) {
+        User copy = new User(user.getUsername(), user.getPassword(), user.getFullName(), List.copyOf(user.getRoles()));
+        copy.setId(user.getId());
+        return copy;
+    }
+
+    // --- Estadísticas ---
+
+    public double getCacheHitRatio() {
+        return userCache.getHitRatio();
+    }
+
+    public long getCacheHitCount() {
+        return userCache.getHitCount();
+    }
+
+    public long getCacheMissCount() {
+        return userCache.getMissCount();
+    }
+
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    public double getAverageLoadTimeMs() {
+        long count = loadCount.get();
+        return count == 0 ? 0.0 : loadTimeNanos.get() / 1_000_000.0 / count;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,239 @@
+package com.example.demo.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Endpoints de /api/cart con dos usuarios de DataInitializer: cada uno ve y modifica solo su propio carrito.
+ * También el lote de cambios (POST /api/cart/batch) y los totales (/api/cart/total y /api/cart/summary).
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cartcontrollertest")
+@AutoConfigureMockMvc
+class CartControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String userA;
+    private String userB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userA = signin("user@huerto.cl");
+        userB = signin("admin@huerto.cl");
+        clear(userA);
+        clear(userB);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        clear(userA);
+        clear(userB);
+    }
+
+    /**
+     * Prueba 1: cada usuario ve solo sus líneas, aunque ambos tengan el mismo producto.
+     */
+    @Test
+    void testCartsAreScopedToUser() throws Exception {
+        add(userA, 1, 2);
+        add(userA, 3, 1);
+        add(userB, 1, 5);
+
+        JsonNode cartA = cart(userA);
+        JsonNode cartB = cart(userB);
+        assertEquals(2, cartA.size());
+        assertEquals(1, cartB.size());
+        assertEquals(2, quantityOf(cartA, 1));
+        assertEquals(5, quantityOf(cartB, 1));
+    }
+
+    /**
+     * Prueba 2: el usuario B recibe 404 al borrar una línea del carrito de A, y la línea sigue ahí.
+     */
+    @Test
+    void testDeleteOtherUsersLine_Returns404() throws Exception {
+        long lineOfA = add(userA, 2, 1).get("id").asLong();
+
+        MvcResult result = mockMvc.perform(delete("/api/cart/" + lineOfA).header("Authorization", userB)).andReturn();
+        assertEquals(404, result.getResponse().getStatus());
+        assertEquals(1, cart(userA).size());
+
+        // El dueño sí puede borrarla
+        result = mockMvc.perform(delete("/api/cart/" + lineOfA).header("Authorization", userA)).andReturn();
+        assertEquals(204, result.getResponse().getStatus());
+        assertEquals(0, cart(userA).size());
+    }
+
+    /**
+     * Prueba 3: vaciar el carrito de un usuario no toca el del otro.
+     */
+    @Test
+    void testClearOnlyAffectsOwnCart() throws Exception {
+        add(userA, 1, 1);
+        add(userB, 1, 1);
+
+        clear(userB);
+
+        assertEquals(1, cart(userA).size());
+        assertEquals(0, cart(userB).size());
+    }
+
+    /**
+     * Prueba 4: sin token no se accede al carrito.
+     */
+    @Test
+    void testCartRequiresAuthentication() throws Exception {
+        assertEquals(403, mockMvc.perform(get("/api/cart")).andReturn().getResponse().getStatus());
+    }
+
+    /**
+     * Prueba 5: POST /api/cart/batch aplica todos los deltas (sumando los del mismo producto) y devuelve el carrito.
+     */
+    @Test
+    void testBatch_AppliesAllDeltas() throws Exception {
+        add(userA, 5, 1);
+
+        MvcResult result = batch(userA, "[{\"productId\":1,\"quantity\":3},{\"productId\":4,\"quantity\":2},"
+                + "{\"productId\":1,\"quantity\":-1},{\"productId\":5,\"quantity\":-1}]");
+        assertEquals(200, result.getResponse().getStatus());
+
+        JsonNode returned = objectMapper.readTree(result.getResponse().getContentAsString());
+        assertEquals(cart(userA), returned);
+        assertEquals(2, returned.size()); // La línea del producto 5 llegó a cero y se eliminó
+        assertEquals(2, quantityOf(returned, 1));
+        assertEquals(2, quantityOf(returned, 4));
+    }
+
+    /**
+     * Prueba 6: si un producto no existe no se aplica ningún cambio.
+     */
+    @Test
+    void testBatch_UnknownProduct_AppliesNothing() throws Exception {
+        add(userA, 1, 1);
+
+        MvcResult result = batch(userA, "[{\"productId\":2,\"quantity\":1},{\"productId\":9999,\"quantity\":1}]");
+        assertEquals(400, result.getResponse().getStatus());
+
+        JsonNode cart = cart(userA);
+        assertEquals(1, cart.size());
+        assertEquals(1, quantityOf(cart, 1));
+    }
+
+    /**
+     * Prueba 7: sin stock para una línea, el lote completo se revierte (también las reservas ya hechas).
+     */
+    @Test
+    void testBatch_InsufficientStock_RollsBackWholeBatch() throws Exception {
+        MvcResult result = batch(userA, "[{\"productId\":2,\"quantity\":1},{\"productId\":3,\"quantity\":1000000}]");
+        assertEquals(409, result.getResponse().getStatus());
+        assertEquals(0, cart(userA).size());
+
+        // La reserva del producto 2 se devolvió: B puede seguir añadiéndolo
+        add(userB, 2, 1);
+    }
+
+    /**
+     * Prueba 8: total y resumen coinciden con la suma exacta de precio * cantidad de las líneas, y vuelven a 0 al vaciar.
+     */
+    @Test
+    void testTotals_MatchCartLines() throws Exception {
+        add(userA, 1, 3);
+        add(userA, 4, 2);
+        add(userA, 6, 1);
+        add(userB, 2, 5); // El carrito de B no cuenta en el de A
+
+        long expectedTotal = 0;
+        long expectedUnits = 0;
+        for (JsonNode item : cart(userA)) {
+            expectedTotal += item.get("unitPrice").asLong() * item.get("quantity").asLong();
+            expectedUnits += item.get("quantity").asLong();
+        }
+        assertEquals(6, expectedUnits);
+        assertEquals(expectedTotal, total(userA));
+
+        JsonNode summary = summary(userA);
+        assertEquals(expectedTotal, summary.get("total").asLong());
+        assertEquals(expectedUnits, summary.get("itemCount").asLong());
+
+        clear(userA);
+        assertEquals(0, total(userA));
+        summary = summary(userA);
+        assertEquals(0, summary.get("total").asLong());
+        assertEquals(0, summary.get("itemCount").asLong());
+    }
+
+    private long total(String bearer) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/cart/total").header("Authorization", bearer)).andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        return Long.parseLong(result.getResponse().getContentAsString());
+    }
+
+    private JsonNode summary(String bearer) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/cart/summary").header("Authorization", bearer)).andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private MvcResult batch(String bearer, String body) throws Exception {
+        return mockMvc.perform(post("/api/cart/batch")
+                        .header("Authorization", bearer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andReturn();
+    }
+
+    private String signin(String username) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"password123\"}"))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        return "Bearer " + objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+    }
+
+    private JsonNode add(String bearer, long productId, int quantity) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/cart/add")
+                        .header("Authorization", bearer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productId\":" + productId + ",\"quantity\":" + quantity + "}"))
+                .andReturn();
+        assertEquals(201, result.getResponse().getStatus());
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private JsonNode cart(String bearer) throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/cart").header("Authorization", bearer)).andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private void clear(String bearer) throws Exception {
+        assertEquals(204, mockMvc.perform(delete("/api/cart/clear").header("Authorization", bearer))
+                .andReturn().getResponse().getStatus());
+    }
+
+    private static int quantityOf(JsonNode cart, long productId) {
+        for (JsonNode line : cart) {
+            if (line.get("productId").asLong() == productId) {
+                return line.get("quantity").asInt();
+            }
+        }
+        return 0;
+    }
+}
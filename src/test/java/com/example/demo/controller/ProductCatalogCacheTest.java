@@ -0,0 +1,115 @@
+package com.example.demo.controller;
+
+import com.example.demo.model.Product;
+import com.example.demo.service.ProductService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * GET /api/products sin paginar: ETag/If-None-Match (304 sin cuerpo) y respuesta comprimida con gzip.
+ * GET /api/products/{id} responde de forma síncrona; la variante Mono solo en /{id}/async.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:productcatalogcachetest")
+@AutoConfigureMockMvc
+class ProductCatalogCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductService productService;
+
+    @Test
+    void testIfNoneMatch_Returns304WithoutBody() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/products")).andReturn();
+        assertEquals(200, first.getResponse().getStatus());
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        MvcResult second = mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+        assertEquals(304, second.getResponse().getStatus());
+        assertEquals(0, second.getResponse().getContentAsByteArray().length);
+        assertEquals(etag, second.getResponse().getHeader(HttpHeaders.ETAG));
+
+        // Entre varios ETags también se reconoce
+        MvcResult list = mockMvc.perform(get("/api/products")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"otro\", " + etag)).andReturn();
+        assertEquals(304, list.getResponse().getStatus());
+    }
+
+    @Test
+    void testCatalogChange_OldEtagNoLongerMatches() throws Exception {
+        String etag = mockMvc.perform(get("/api/products")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        Product added = productService.saveProduct(new Product("Frambuesas", 3990, "bandeja", 5, 0, "Prueba de ETag", 4.0, 1L));
+        try {
+            MvcResult result = mockMvc.perform(get("/api/products").header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+            assertEquals(200, result.getResponse().getStatus());
+            assertNotEquals(etag, result.getResponse().getHeader(HttpHeaders.ETAG));
+            assertTrue(result.getResponse().getContentAsString().contains("Frambuesas"));
+        } finally {
+            productService.deleteProduct(added.getId());
+        }
+    }
+
+    @Test
+    void testAcceptEncodingGzip_ReturnsCompressedCatalog() throws Exception {
+        MvcResult plain = mockMvc.perform(get("/api/products")).andReturn();
+        MvcResult gzip = mockMvc.perform(get("/api/products").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate")).andReturn();
+
+        assertEquals(200, gzip.getResponse().getStatus());
+        assertEquals("gzip", gzip.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(gzip.getResponse().getHeaders(HttpHeaders.VARY).contains(HttpHeaders.ACCEPT_ENCODING));
+        assertNull(plain.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+
+        byte[] compressed = gzip.getResponse().getContentAsByteArray();
+        byte[] json = plain.getResponse().getContentAsByteArray();
+        assertTrue(compressed.length < json.length);
+        assertArrayEquals(json, gunzip(compressed));
+
+        // Cada representación tiene su ETag: el de la versión sin comprimir no valida la comprimida
+        String gzipEtag = gzip.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(plain.getResponse().getHeader(HttpHeaders.ETAG), gzipEtag);
+        assertEquals(200, mockMvc.perform(get("/api/products")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, plain.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andReturn().getResponse().getStatus());
+        assertEquals(304, mockMvc.perform(get("/api/products")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                        .header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+                .andReturn().getResponse().getStatus());
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void testProductById_SyncByDefault_AsyncOptIn() throws Exception {
+        MvcResult sync = mockMvc.perform(get("/api/products/1")).andReturn();
+        assertFalse(sync.getRequest().isAsyncStarted());
+        assertEquals(200, sync.getResponse().getStatus());
+        assertTrue(sync.getResponse().getContentAsString().contains("\"id\":1"));
+        assertEquals(404, mockMvc.perform(get("/api/products/999999")).andReturn().getResponse().getStatus());
+
+        MvcResult started = mockMvc.perform(get("/api/products/1/async")).andReturn();
+        assertTrue(started.getRequest().isAsyncStarted());
+        MvcResult async = mockMvc.perform(asyncDispatch(started)).andReturn();
+        assertEquals(200, async.getResponse().getStatus());
+        assertEquals(sync.getResponse().getContentAsString(), async.getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.demo.controller;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.service.ProductService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * GET /api/products?categoryId=…: una o varias categorías, sin paginar (porción del catálogo en memoria)
+ * y paginado (consulta a la BD). Siempre devuelve exactamente los productos de esas categorías.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:productcategoryfiltertest")
+@AutoConfigureMockMvc
+class ProductCategoryFilterTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void testSingleAndMultipleCategories_MatchDatabase() throws Exception {
+        for (List<Long> categories : List.of(List.of(1L), List.of(4L), List.of(1L, 3L), List.of(2L, 3L, 4L))) {
+            Set<Long> expected = inDatabase(categories);
+            assertFalse(expected.isEmpty(), "DataInitializer no tiene productos en " + categories);
+
+            assertEquals(expected, ids(get("/api/products").param("categoryId", toParams(categories))), "slice " + categories);
+            assertEquals(expected, ids(get("/api/products").param("categoryId", toParams(categories))
+                    .param("size", "100")), "página " + categories);
+        }
+    }
+
+    @Test
+    void testUnknownCategory_ReturnsEmptyList() throws Exception {
+        assertTrue(ids(get("/api/products").param("categoryId", "999")).isEmpty());
+    }
+
+    @Test
+    void testCategoryChange_MovesProductBetweenSlices() throws Exception {
+        Product product = productService.saveProduct(new Product("Alcachofas", 2490, "kg", 5, 0, "Prueba de categoría", 4.0, 2L));
+        try {
+            assertTrue(ids(get("/api/products").param("categoryId", "2")).contains(product.getId()));
+
+            product.setCategoryId(3L);
+            productService.updateProduct(product.getId(), product);
+
+            assertFalse(ids(get("/api/products").param("categoryId", "2")).contains(product.getId()));
+            assertTrue(ids(get("/api/products").param("categoryId", "3")).contains(product.getId()));
+        } finally {
+            productService.deleteProduct(product.getId());
+        }
+    }
+
+    // IDs de la respuesta, sea una lista (slice) o una página ({items, nextCursor})
+    private Set<Long> ids(RequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+        JsonNode items = body.isArray() ? body : body.get("items");
+        Set<Long> ids = new HashSet<>();
+        items.forEach(item -> ids.add(item.get("id").asLong()));
+        return ids;
+    }
+
+    private Set<Long> inDatabase(List<Long> categories) {
+        return productRepository.findAll().stream()
+                .filter(p -> categories.contains(p.getCategoryId()))
+                .map(Product::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static String[] toParams(List<Long> categories) {
+        return categories.stream().map(String::valueOf).toArray(String[]::new);
+    }
+}
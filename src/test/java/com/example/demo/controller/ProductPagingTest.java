@@ -0,0 +1,164 @@
+package com.example.demo.controller;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Paginación keyset de GET /api/products: recorrer todas las páginas devuelve cada producto una sola vez
+ * y en orden con cualquier campo de orden (id, precio, nombre, rating), también con valores repetidos
+ * y con NULL en el campo de orden (que van al final).
+ * Un cursor alterado responde 400.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:productpagingtest")
+@AutoConfigureMockMvc
+class ProductPagingTest {
+
+    // Categoría propia para no depender de los productos de DataInitializer
+    private static final long CATEGORY = 90L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.deleteAll(productRepository.findAll().stream()
+                .filter(p -> Objects.equals(p.getCategoryId(), CATEGORY))
+                .toList());
+        // Ratings y nombres repetidos, y algunos NULL intercalados
+        products = productRepository.saveAll(List.of(
+                product("Berries", 1200, 4.5),
+                product(null, 800, null),
+                product("Acelga", 1200, 4.5),
+                product("Berries", 500, 3.0),
+                product(null, 800, 4.5),
+                product("Cebolla", 1200, null),
+                product("Acelga", 500, 3.0)));
+    }
+
+    @Test
+    void testWalkByRating_NullsLastAndTiesById() throws Exception {
+        for (int size : new int[]{1, 2, 3}) {
+            assertEquals(expected(Product::getRating, true), walk("rating", "asc", size), "rating asc, size " + size);
+            assertEquals(expected(Product::getRating, false), walk("rating", "desc", size), "rating desc, size " + size);
+        }
+    }
+
+    @Test
+    void testWalkByName_NullsLastAndTiesById() throws Exception {
+        for (int size : new int[]{1, 2, 3}) {
+            assertEquals(expected(Product::getName, true), walk("name", "asc", size), "name asc, size " + size);
+            assertEquals(expected(Product::getName, false), walk("name", "desc", size), "name desc, size " + size);
+        }
+    }
+
+    @Test
+    void testWalkById() throws Exception {
+        for (int size : new int[]{1, 2, 3}) {
+            assertEquals(expected(Product::getId, true), walk("id", "asc", size), "id asc, size " + size);
+            assertEquals(expected(Product::getId, false), walk("id", "desc", size), "id desc, size " + size);
+        }
+    }
+
+    @Test
+    void testWalkByPrice_TiesById() throws Exception {
+        for (int size : new int[]{1, 2, 3}) {
+            assertEquals(expected(Product::getPrice, true), walk("price", "asc", size), "price asc, size " + size);
+            assertEquals(expected(Product::getPrice, false), walk("price", "desc", size), "price desc, size " + size);
+        }
+    }
+
+    @Test
+    void testTamperedCursor_Returns400() throws Exception {
+        // {campo de orden, cursor}
+        String[][] cases = {
+                {"rating", "no-es-base64!"},
+                {"rating", encode("null")},
+                {"rating", encode("{\"s\":\"rating\",\"d\":\"ASC\",\"k\":{\"rating\":\"alto\",\"id\":1}}")},
+                {"rating", encode("{\"s\":\"rating\",\"d\":\"ASC\",\"k\":{\"rating\":4.5,\"id\":\"1\"}}")},
+                {"rating", encode("{\"s\":\"rating\",\"d\":\"ASC\",\"k\":{\"rating\":4.5}}")},
+                {"price", encode("{\"s\":\"price\",\"d\":\"ASC\",\"k\":{\"price\":1.5,\"id\":1}}")},
+                {"name", encode("{\"s\":\"name\",\"d\":\"ASC\",\"k\":{\"name\":7,\"id\":1}}")},
+                {"id", encode("{\"s\":\"id\",\"d\":\"ASC\",\"k\":{\"id\":null}}")}
+        };
+        // El mismo cursor con un id válido sí se acepta: el 400 de abajo se debe al valor null
+        MvcResult valid = mockMvc.perform(get("/api/products")
+                .param("sort", "id").param("size", "2")
+                .param("cursor", encode("{\"s\":\"id\",\"d\":\"ASC\",\"k\":{\"id\":1}}"))).andReturn();
+        assertEquals(200, valid.getResponse().getStatus());
+
+        for (String[] c : cases) {
+            MvcResult result = mockMvc.perform(get("/api/products")
+                    .param("sort", c[0]).param("size", "2").param("cursor", c[1])).andReturn();
+            assertEquals(400, result.getResponse().getStatus(), "cursor " + c[1]);
+        }
+    }
+
+    // Recorre el listado página a página siguiendo nextCursor y devuelve los IDs en el orden recibido
+    private List<Long> walk(String sort, String direction, int size) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/products")
+                    .param("categoryId", String.valueOf(CATEGORY))
+                    .param("sort", sort).param("direction", direction).param("size", String.valueOf(size));
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            MvcResult result = mockMvc.perform(request).andReturn();
+            assertEquals(200, result.getResponse().getStatus());
+
+            JsonNode page = objectMapper.readTree(result.getResponse().getContentAsString());
+            page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            assertTrue(ids.size() <= products.size(), "el recorrido no termina");
+        } while (cursor != null);
+        return ids;
+    }
+
+    // Orden esperado: por el campo (NULL al final en ambas direcciones) y desempate por id
+    private <T extends Comparable<T>> List<Long> expected(Function<Product, T> field, boolean ascending) {
+        Comparator<T> values = ascending ? Comparator.<T>naturalOrder() : Comparator.<T>reverseOrder();
+        Comparator<Long> ids = ascending ? Comparator.<Long>naturalOrder() : Comparator.<Long>reverseOrder();
+        return products.stream()
+                .sorted(Comparator.comparing(field, Comparator.nullsLast(values))
+                        .thenComparing(Product::getId, ids))
+                .map(Product::getId)
+                .toList();
+    }
+
+    private static Product product(String name, int price, Double rating) {
+        return new Product(name, price, "kg", 10, 0, "Producto de prueba", rating, CATEGORY);
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
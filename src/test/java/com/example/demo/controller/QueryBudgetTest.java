@@ -0,0 +1,111 @@
+package com.example.demo.controller;
+
+import com.example.demo.jdbc.QueryCountFilter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Presupuesto de sentencias SQL por endpoint: falla si un request ejecuta más consultas de las declaradas
+ * (cabecera X-Query-Count del QueryCountFilter). Si un cambio sube la cuenta a propósito, se ajusta aquí.
+ * Los presupuestos son del estado "caliente": catálogo y usuario ya cacheados.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:querybudgettest",
+        "db.query-count.header=true"
+})
+@AutoConfigureMockMvc
+class QueryBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String bearer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MvcResult signin = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"user@huerto.cl\",\"password\":\"password123\"}"))
+                .andReturn();
+        assertEquals(200, signin.getResponse().getStatus());
+        bearer = "Bearer " + objectMapper.readTree(signin.getResponse().getContentAsString()).get("token").asText();
+
+        mockMvc.perform(get("/api/products")).andReturn(); // Carga el catálogo en memoria
+        mockMvc.perform(delete("/api/cart/clear").header("Authorization", bearer)).andReturn();
+    }
+
+    @Test
+    void testCartReads_OneQueryEach() throws Exception {
+        addToCart(3, 1);
+
+        assertWithinBudget(get("/api/cart").header("Authorization", bearer), 1);
+        assertWithinBudget(get("/api/cart/total").header("Authorization", bearer), 1);
+        assertWithinBudget(get("/api/cart/summary").header("Authorization", bearer), 1);
+    }
+
+    @Test
+    void testAddToCart_UpsertPlusRead() throws Exception {
+        assertWithinBudget(post("/api/cart/add")
+                .header("Authorization", bearer)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"productId\":3,\"quantity\":2}"), 2);
+    }
+
+    @Test
+    void testCatalogAndSignin_ServedFromCache() throws Exception {
+        assertWithinBudget(get("/api/products"), 0);
+        assertWithinBudget(get("/api/products/3"), 0);
+        assertWithinBudget(post("/api/auth/signin")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"user@huerto.cl\",\"password\":\"password123\"}"), 0);
+    }
+
+    @Test
+    void testCheckout_FixedCostPlusOneInsertPerLine() throws Exception {
+        long[] productIds = {3, 4, 5};
+        for (long productId : productIds) {
+            addToCart(productId, 1);
+        }
+
+        // Fijo: clave, carrito, pedido, vaciado del carrito, clave actualizada y evento del outbox.
+        // Las líneas (id IDENTITY) no entran en el batch JDBC: un INSERT por cada una.
+        assertWithinBudget(post("/api/orders/checkout")
+                .header("Authorization", bearer)
+                .header("Idempotency-Key", "budget-" + System.nanoTime()), 7 + productIds.length);
+        assertWithinBudget(get("/api/orders").header("Authorization", bearer), 1);
+    }
+
+    private void addToCart(long productId, int quantity) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/cart/add")
+                        .header("Authorization", bearer)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"productId\":" + productId + ",\"quantity\":" + quantity + "}"))
+                .andReturn();
+        assertEquals(201, result.getResponse().getStatus());
+    }
+
+    private void assertWithinBudget(RequestBuilder request, int budget) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        String uri = result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+
+        assertTrue(result.getResponse().getStatus() < 400, uri + " respondió " + result.getResponse().getStatus());
+        String header = result.getResponse().getHeader(QueryCountFilter.HEADER);
+        assertNotNull(header, uri + " no devolvió " + QueryCountFilter.HEADER);
+        long count = Long.parseLong(header);
+        assertTrue(count <= budget, uri + " ejecutó " + count + " sentencias SQL (presupuesto: " + budget + ")");
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.controller;
+
+import com.example.demo.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+
+/**
+ * Revocación de tokens: tras un logout, un cambio de contraseña o un cambio de roles,
+ * los tokens emitidos antes dejan de autorizar y un login nuevo (aunque sea en el mismo segundo) sí funciona.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:tokenrevocationtest")
+@AutoConfigureMockMvc
+class TokenRevocationTest {
+
+    private static final String PASSWORD = "password123";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // Un usuario nuevo por prueba: las revocaciones de una no afectan a las demás
+    private String username;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        username = "revocation-" + System.nanoTime() + "@huerto.cl";
+        MvcResult register = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\",\"fullName\":\"Prueba\"}"))
+                .andReturn();
+        assertEquals(200, register.getResponse().getStatus());
+    }
+
+    @Test
+    void testLogout_RevokesEarlierToken() throws Exception {
+        String token = signin(username, PASSWORD);
+        assertEquals(200, cartStatus(token));
+
+        assertEquals(200, mockMvc.perform(post("/api/auth/logout").header("Authorization", "Bearer " + token))
+                .andReturn().getResponse().getStatus());
+
+        assertEquals(403, cartStatus(token));
+        assertEquals(200, cartStatus(signin(username, PASSWORD)));
+    }
+
+    @Test
+    void testChangePassword_RevokesEarlierToken() throws Exception {
+        String token = signin(username, PASSWORD);
+
+        MvcResult change = mockMvc.perform(put("/api/auth/password")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"currentPassword\":\"" + PASSWORD + "\",\"newPassword\":\"otra-clave-456\"}"))
+                .andReturn();
+        assertEquals(200, change.getResponse().getStatus());
+
+        assertEquals(403, cartStatus(token));
+        assertEquals(401, signinStatus(username, PASSWORD));
+        assertEquals(200, cartStatus(signin(username, "otra-clave-456")));
+    }
+
+    @Test
+    void testChangePassword_WrongCurrentPassword_KeepsToken() throws Exception {
+        String token = signin(username, PASSWORD);
+
+        MvcResult change = mockMvc.perform(put("/api/auth/password")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"currentPassword\":\"incorrecta\",\"newPassword\":\"otra-clave-456\"}"))
+                .andReturn();
+        assertEquals(400, change.getResponse().getStatus());
+        assertEquals(200, cartStatus(token));
+    }
+
+    @Test
+    void testUpdateRoles_RevokesEarlierToken() throws Exception {
+        String token = signin(username, PASSWORD);
+        String admin = signin("admin@huerto.cl", PASSWORD);
+        Long userId = userRepository.findByUsername(username).orElseThrow().getId();
+
+        // Un usuario sin ADMIN no puede cambiar roles
+        assertEquals(403, updateRolesStatus(token, userId));
+
+        assertEquals(200, updateRolesStatus(admin, userId));
+        assertEquals(403, cartStatus(token));
+        assertEquals(200, cartStatus(signin(username, PASSWORD)));
+    }
+
+    private String signin(String user, String password) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + user + "\",\"password\":\"" + password + "\"}"))
+                .andReturn();
+        assertEquals(200, result.getResponse().getStatus());
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("token").asText();
+    }
+
+    private int signinStatus(String user, String password) throws Exception {
+        return mockMvc.perform(post("/api/auth/signin")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"" + user + "\",\"password\":\"" + password + "\"}"))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private int cartStatus(String token) throws Exception {
+        return mockMvc.perform(get("/api/cart").header("Authorization", "Bearer " + token))
+                .andReturn().getResponse().getStatus();
+    }
+
+    private int updateRolesStatus(String token, Long userId) throws Exception {
+        return mockMvc.perform(put("/api/auth/users/" + userId + "/roles")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"ROLE_USER\",\"ROLE_CUSTOMER\"]"))
+                .andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.security;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas unitarias para BoundedPasswordEncoder con un encoder de prueba que bloquea hasta que se lo libera.
+ */
+class BoundedPasswordEncoderTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private BoundedPasswordEncoder encoder;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        if (encoder != null) {
+            encoder.shutdown();
+        }
+    }
+
+    /**
+     * Prueba 1: con el hilo ocupado y la cola llena, el siguiente hash se rechaza al instante (sin esperar el timeout).
+     */
+    @Test
+    void testQueueFull_RejectsImmediately() throws Exception {
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 10_000);
+        Future<String> running = callers.submit(() -> encoder.encode("uno"));
+        awaitActive(1);
+        Future<String> queued = callers.submit(() -> encoder.encode("dos"));
+        awaitQueued(1);
+
+        long start = System.nanoTime();
+        assertThrows(PasswordHashingRejectedException.class, () -> encoder.encode("tres"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000);
+        assertEquals(1, encoder.getRejectedCount());
+
+        // Los que sí entraron terminan normalmente
+        release.countDown();
+        assertEquals("hash:uno", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash:dos", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Prueba 2: al agotarse la espera el llamador recibe el rechazo, pero el hash que ya corría sigue ocupando
+     * su hilo hasta terminar.
+     */
+    @Test
+    void testTimeout_RejectsCallerButRunningHashContinues() throws Exception {
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 100);
+
+        assertThrows(PasswordHashingRejectedException.class, () -> encoder.encode("lento"));
+        assertEquals(1, encoder.getActiveCount());
+
+        release.countDown();
+        awaitActive(0);
+        assertEquals(1, encoder.getHashCount());
+    }
+
+    /**
+     * Prueba 3: sin saturación, encode y matches delegan en el encoder real.
+     */
+    @Test
+    void testDelegatesWhenNotSaturated() {
+        release.countDown();
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 2, 2, 1_000);
+
+        assertEquals("hash:clave", encoder.encode("clave"));
+        assertTrue(encoder.matches("clave", "hash:clave"));
+        assertFalse(encoder.matches("otra", "hash:clave"));
+        assertEquals(3, encoder.getHashCount());
+        assertEquals(0, encoder.getRejectedCount());
+    }
+
+    /**
+     * Prueba 4: los hashes quedan en el Timer huerto.bcrypt.hash del registro enlazado, con buckets de histograma.
+     */
+    @Test
+    void testHashTimer_RecordsIntoBoundRegistryWithBuckets() {
+        release.countDown();
+        encoder = new BoundedPasswordEncoder(new BlockingEncoder(), 1, 1, 1_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        encoder.bindTo(registry);
+
+        encoder.encode("clave");
+        encoder.matches("clave", "hash:clave");
+
+        Timer timer = registry.get("huerto.bcrypt.hash").timer();
+        assertEquals(2, timer.count());
+        CountAtBucket[] buckets = timer.takeSnapshot().histogramCounts();
+        assertTrue(buckets.length > 0);
+        assertEquals(2, buckets[buckets.length - 1].count()); // El último bucket (5 s) incluye a todos
+    }
+
+    private void awaitActive(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (encoder.getActiveCount() != expected) {
+            assertTrue(System.nanoTime() < deadline, "hilos activos: " + encoder.getActiveCount());
+            Thread.sleep(5);
+        }
+    }
+
+    private void awaitQueued(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (encoder.getQueueDepth() != expected) {
+            assertTrue(System.nanoTime() < deadline, "en cola: " + encoder.getQueueDepth());
+            Thread.sleep(5);
+        }
+    }
+
+    // Como BCrypt, no atiende interrupciones: solo termina cuando se libera el latch
+    private final class BlockingEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            awaitRelease();
+            return "hash:" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            awaitRelease();
+            return encodedPassword.equals("hash:" + rawPassword);
+        }
+
+        private void awaitRelease() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
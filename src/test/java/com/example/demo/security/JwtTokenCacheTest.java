@@ -0,0 +1,116 @@
+package com.example.demo.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pruebas unitarias para JwtTokenCache: cada token se verifica una sola vez mientras no expire.
+ */
+@ExtendWith(MockitoExtension.class)
+class JwtTokenCacheTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    @Mock
+    private JwtTokenUtil jwtTokenUtil;
+
+    private JwtTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new JwtTokenCache(jwtTokenUtil, 100);
+    }
+
+    /**
+     * Prueba 1: el segundo uso del mismo token sale de la caché, sin volver a verificar la firma.
+     */
+    @Test
+    void testSameToken_VerifiedOnce() {
+        Claims claims = claims(60_000);
+        when(jwtTokenUtil.parseClaims(TOKEN)).thenReturn(claims);
+
+        assertSame(claims, cache.getVerifiedClaims(TOKEN));
+        assertSame(claims, cache.getVerifiedClaims(TOKEN));
+        assertSame(claims, cache.getVerifiedClaims(TOKEN));
+
+        verify(jwtTokenUtil, times(1)).parseClaims(TOKEN);
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * Prueba 2: la entrada vive solo hasta el 'exp' del token; después se vuelve a verificar.
+     */
+    @Test
+    void testEntryExpiresWithToken() throws Exception {
+        when(jwtTokenUtil.parseClaims(TOKEN)).thenReturn(claims(50));
+
+        cache.getVerifiedClaims(TOKEN);
+        Thread.sleep(100);
+        cache.getVerifiedClaims(TOKEN);
+
+        verify(jwtTokenUtil, times(2)).parseClaims(TOKEN);
+    }
+
+    /**
+     * Prueba 3: un token inválido no se cachea y propaga la excepción de JwtTokenUtil.
+     */
+    @Test
+    void testInvalidToken_NotCached() {
+        when(jwtTokenUtil.parseClaims(TOKEN)).thenThrow(new ExpiredJwtException(null, null, "expirado"));
+
+        assertThrows(ExpiredJwtException.class, () -> cache.getVerifiedClaims(TOKEN));
+        assertThrows(ExpiredJwtException.class, () -> cache.getVerifiedClaims(TOKEN));
+
+        verify(jwtTokenUtil, times(2)).parseClaims(TOKEN);
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Prueba 4: al rotar la clave las entradas anteriores dejan de coincidir y el token se verifica de nuevo.
+     */
+    @Test
+    void testKeyRotation_ReverifiesToken() {
+        when(jwtTokenUtil.parseClaims(TOKEN)).thenReturn(claims(60_000));
+        when(jwtTokenUtil.getKeyVersion()).thenReturn(0, 0, 1);
+
+        cache.getVerifiedClaims(TOKEN);
+        cache.getVerifiedClaims(TOKEN);
+        cache.getVerifiedClaims(TOKEN);
+
+        verify(jwtTokenUtil, times(2)).parseClaims(TOKEN);
+    }
+
+    /**
+     * Prueba 5: invalidate fuerza una nueva verificación del token.
+     */
+    @Test
+    void testInvalidate_ReverifiesToken() {
+        when(jwtTokenUtil.parseClaims(TOKEN)).thenReturn(claims(60_000));
+
+        cache.getVerifiedClaims(TOKEN);
+        cache.invalidate(TOKEN);
+        cache.getVerifiedClaims(TOKEN);
+
+        verify(jwtTokenUtil, times(2)).parseClaims(TOKEN);
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    private static Claims claims(long ttlMs) {
+        return Jwts.claims()
+                .subject("user@huerto.cl")
+                .expiration(new Date(System.currentTimeMillis() + ttlMs))
+                .build();
+    }
+}
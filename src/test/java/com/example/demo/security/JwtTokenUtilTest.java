@@ -0,0 +1,120 @@
+package com.example.demo.security;
+
+import com.example.demo.model.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas unitarias para la rotación de claves de JwtTokenUtil (sin contexto de Spring).
+ */
+class JwtTokenUtilTest {
+
+    private JwtTokenUtil jwtTokenUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenUtil = new JwtTokenUtil();
+        ReflectionTestUtils.setField(jwtTokenUtil, "jwtSecret", secret('a'));
+        ReflectionTestUtils.setField(jwtTokenUtil, "jwtExpirationMs", 3_600_000);
+        jwtTokenUtil.init();
+    }
+
+    /**
+     * Prueba 1: un token firmado con la clave anterior sigue validando después de rotar.
+     */
+    @Test
+    void testRotateKey_PreviousKeyTokenStillValid() {
+        String token = token("ana@huerto.cl");
+
+        jwtTokenUtil.rotateKey(secret('b'));
+
+        Claims claims = jwtTokenUtil.parseClaims(token);
+        assertEquals("ana@huerto.cl", claims.getSubject());
+        assertEquals(1, jwtTokenUtil.getKeyVersion());
+        // Los tokens nuevos se firman con la clave nueva
+        assertEquals("ana@huerto.cl", jwtTokenUtil.parseClaims(token("ana@huerto.cl")).getSubject());
+    }
+
+    /**
+     * Prueba 2: tras una segunda rotación, los tokens de dos claves atrás ya no validan.
+     */
+    @Test
+    void testRotateKeyTwice_OlderKeyTokenRejected() {
+        String token = token("ana@huerto.cl");
+
+        jwtTokenUtil.rotateKey(secret('b'));
+        jwtTokenUtil.rotateKey(secret('c'));
+
+        assertThrows(JwtException.class, () -> jwtTokenUtil.parseClaims(token));
+    }
+
+    /**
+     * Prueba 3: un token firmado con una clave desconocida se rechaza.
+     */
+    @Test
+    void testForeignKeyToken_Rejected() {
+        JwtTokenUtil other = new JwtTokenUtil();
+        ReflectionTestUtils.setField(other, "jwtSecret", secret('z'));
+        ReflectionTestUtils.setField(other, "jwtExpirationMs", 3_600_000);
+        other.init();
+        String foreign = other.generateJwtToken(authentication("ana@huerto.cl"));
+
+        jwtTokenUtil.rotateKey(secret('b'));
+
+        assertThrows(JwtException.class, () -> jwtTokenUtil.parseClaims(foreign));
+    }
+
+    /**
+     * Prueba 4: rotaciones concurrentes no repiten versión: la final cuenta todas las rotaciones.
+     */
+    @Test
+    void testConcurrentRotations_DistinctVersions() throws Exception {
+        int threads = 8;
+        int rotationsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new CopyOnWriteArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            char fill = (char) ('b' + t);
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < rotationsPerThread; i++) {
+                    jwtTokenUtil.rotateKey(secret(fill));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(threads * rotationsPerThread, jwtTokenUtil.getKeyVersion());
+    }
+
+    private String token(String username) {
+        return jwtTokenUtil.generateJwtToken(authentication(username));
+    }
+
+    private static UsernamePasswordAuthenticationToken authentication(String username) {
+        User user = new User(username, "", "Prueba", List.of("ROLE_USER"));
+        user.setId(1L);
+        return new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+    }
+
+    // Secreto HMAC-SHA256 de 32 bytes, en base64 como jwt.secret
+    private static String secret(char fill) {
+        return Base64.getEncoder().encodeToString(String.valueOf(fill).repeat(32).getBytes());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas unitarias para la purga de marcas de TokenRevocationRegistry.
+ */
+class TokenRevocationRegistryTest {
+
+    private static final long EXPIRATION_MS = 60_000;
+
+    private TokenRevocationRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new TokenRevocationRegistry();
+        ReflectionTestUtils.setField(registry, "expirationMs", EXPIRATION_MS);
+    }
+
+    /**
+     * Prueba 1: mientras un token revocado pueda seguir vigente, la marca se conserva.
+     */
+    @Test
+    void testPurge_KeepsMarksWhileRevokedTokensCanBeValid() {
+        long now = System.currentTimeMillis();
+        Date issuedBefore = new Date(now - 1_000);
+        registry.revokeAll("user@huerto.cl");
+
+        registry.purgeExpired(now + EXPIRATION_MS - 1_000);
+
+        assertEquals(1, registry.size());
+        assertTrue(registry.isRevoked("user@huerto.cl", issuedBefore));
+    }
+
+    /**
+     * Prueba 2: cuando todos los tokens anteriores a la marca ya expiraron, la marca se borra.
+     */
+    @Test
+    void testPurge_RemovesMarksOlderThanExpiration() {
+        long now = System.currentTimeMillis();
+        registry.revokeAll("user@huerto.cl");
+        registry.revokeAll("admin@huerto.cl");
+
+        registry.purgeExpired(now + EXPIRATION_MS + 2_000);
+
+        assertEquals(0, registry.size());
+        assertFalse(registry.isRevoked("user@huerto.cl", new Date(now - 1_000)));
+    }
+}
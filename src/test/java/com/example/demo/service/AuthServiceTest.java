@@ -1,8 +1,10 @@
 package com.example.demo.service;
 
+import com.example.demo.dto.LoginResult;
 import com.example.demo.model.User;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.security.JwtTokenUtil;
+import com.example.demo.security.TokenRevocationRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -16,6 +18,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -36,6 +39,10 @@ class AuthServiceTest {
     private AuthenticationManager authenticationManager;
     @Mock
     private JwtTokenUtil jwtTokenUtil;
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+    @Mock
+    private TokenRevocationRegistry tokenRevocationRegistry;
 
     // Objeto a probar, donde se inyectan los Mocks
     @InjectMocks
@@ -83,6 +90,8 @@ class AuthServiceTest {
         assertEquals(ENCODED_PASSWORD, resultUser.getPassword());
         assertTrue(resultUser.getRoles().contains("ROLE_USER"));
         verify(userRepository, times(1)).save(any(User.class));
+        // El principal cacheado se invalida tras escribir el usuario
+        verify(userDetailsService, times(1)).evictUser(TEST_USERNAME);
     }
 
     /**
@@ -168,7 +177,7 @@ class AuthServiceTest {
     // =========================================================================
 
     /**
-     * Prueba 6: Verifica que un inicio de sesión exitoso devuelve un token JWT.
+     * Prueba 6: Verifica que un inicio de sesión exitoso devuelve el token JWT y el principal autenticado.
      */
     @Test
     void testLogin_Success_ReturnsToken() {
@@ -178,13 +187,18 @@ class AuthServiceTest {
 
         // 2. Configurar JwtTokenUtil para usar la nueva firma: generateJwtToken(Authentication)
         when(jwtTokenUtil.generateJwtToken(authenticationMock)).thenReturn(GENERATED_TOKEN);
+        // 3. El principal autenticado es el que se devuelve en el resultado (sin otra consulta)
+        when(authenticationMock.getPrincipal()).thenReturn(userPrincipalMock);
 
         // Ejecución (Act)
-        String token = authService.login(TEST_USERNAME, TEST_PASSWORD);
+        LoginResult result = authService.login(TEST_USERNAME, TEST_PASSWORD);
 
         // Verificación (Assert)
-        assertNotNull(token);
-        assertEquals(GENERATED_TOKEN, token);
+        assertNotNull(result);
+        assertEquals(GENERATED_TOKEN, result.getToken());
+        assertSame(userPrincipalMock, result.getPrincipal());
+        // El login no consulta el repositorio por su cuenta
+        verifyNoInteractions(userRepository);
         // Verificamos que el token se generó con el objeto Authentication (la nueva firma)
         verify(jwtTokenUtil, times(1)).generateJwtToken(authenticationMock);
     }
@@ -263,4 +277,47 @@ class AuthServiceTest {
         // Verificamos que solo se llama una vez a authenticate, garantizando la eficiencia.
         verify(authenticationManager, times(1)).authenticate(any(UsernamePasswordAuthenticationToken.class));
     }
+
+
+    // =========================================================================
+    //                       PRUEBAS DE CAMBIO DE CONTRASEÑA
+    // =========================================================================
+
+    /**
+     * Prueba 11: Cambiar la contraseña guarda el nuevo hash y revoca los tokens anteriores.
+     */
+    @Test
+    void testChangePassword_Success_RevokesTokens() {
+        // Configuración (Arrange)
+        User user = new User(TEST_USERNAME, ENCODED_PASSWORD, TEST_FULLNAME, TEST_ROLES);
+        when(userRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches(TEST_PASSWORD, ENCODED_PASSWORD)).thenReturn(true);
+        when(passwordEncoder.encode("nueva")).thenReturn("encoded_nueva");
+
+        // Ejecución (Act)
+        authService.changePassword(TEST_USERNAME, TEST_PASSWORD, "nueva");
+
+        // Verificación (Assert)
+        assertEquals("encoded_nueva", user.getPassword());
+        verify(userRepository, times(1)).save(user);
+        verify(tokenRevocationRegistry, times(1)).revokeAll(TEST_USERNAME);
+        verify(userDetailsService, times(1)).evictUser(TEST_USERNAME);
+    }
+
+    /**
+     * Prueba 12: Con la contraseña actual incorrecta no se guarda nada ni se revocan tokens.
+     */
+    @Test
+    void testChangePassword_WrongCurrentPassword_ThrowsException() {
+        // Configuración (Arrange)
+        User user = new User(TEST_USERNAME, ENCODED_PASSWORD, TEST_FULLNAME, TEST_ROLES);
+        when(userRepository.findByUsername(TEST_USERNAME)).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("incorrecta", ENCODED_PASSWORD)).thenReturn(false);
+
+        // Ejecución y Verificación (Act & Assert)
+        assertThrows(IllegalArgumentException.class,
+                () -> authService.changePassword(TEST_USERNAME, "incorrecta", "nueva"));
+        verify(userRepository, never()).save(any(User.class));
+        verifyNoInteractions(tokenRevocationRegistry);
+    }
 }
\ No newline at end of file
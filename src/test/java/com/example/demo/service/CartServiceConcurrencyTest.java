@@ -0,0 +1,174 @@
+package com.example.demo.service;
+
+import com.example.demo.model.CartItem;
+import com.example.demo.model.Product;
+import com.example.demo.repository.CartItemRepository;
+import com.example.demo.repository.CartItemRepositoryImpl;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pruebas de concurrencia de CartService.addOrUpdateItem contra la base H2 embebida.
+ * Verifican que el upsert atómico no pierde cantidades ni duplica líneas con muchos "añadir" en paralelo,
+ * y que las reservas de stock nunca venden más unidades de las que hay.
+ * También que el reintento tras un choque con la clave única corre en una transacción nueva.
+ */
+@SpringBootTest
+class CartServiceConcurrencyTest {
+
+    private static final int THREADS = 32;
+    private static final int ADDS = 2000;
+    private static final Long PRODUCT_ID = 1L;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @SpyBean
+    private CartItemRepository cartItemRepository;
+
+    private Long userId;
+    private int stock;
+
+    @BeforeEach
+    void setUp() {
+        // Usuario cargado por DataInitializer
+        userId = userRepository.findByUsername("user@huerto.cl").orElseThrow().getId();
+        cartService.clearCart(userId);
+        stock = productService.findProductById(PRODUCT_ID).orElseThrow().getStock();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartService.clearCart(userId);
+    }
+
+    /**
+     * Prueba 1: miles de "añadir 1" en paralelo sobre la misma línea terminan con una sola fila
+     * y exactamente el stock disponible; el resto se rechaza con InsufficientStockException.
+     */
+    @Test
+    void testConcurrentAdds_FinalQuantityIsExactAndNeverExceedsStock() throws Exception {
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(ADDS, i -> {
+            try {
+                cartService.addOrUpdateItem(userId, PRODUCT_ID, 1);
+            } catch (InsufficientStockException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        List<CartItem> cart = cartService.getCartItems(userId);
+        assertEquals(1, cart.size());
+        assertEquals(stock, cart.get(0).getQuantity());
+        assertEquals(ADDS - stock, rejected.get());
+    }
+
+    /**
+     * Prueba 2: sumas y restas intercaladas se compensan; la línea se elimina al llegar a cero.
+     */
+    @Test
+    void testConcurrentAddsAndRemoves_NetQuantityIsExact() throws Exception {
+        int initial = stock / 3; // Deja margen para las sumas que se adelantan a las restas
+        cartService.addOrUpdateItem(userId, PRODUCT_ID, initial);
+
+        // La mitad suma 1 y la otra mitad resta 1: el neto es cero cambio
+        runConcurrently(ADDS, i -> cartService.addOrUpdateItem(userId, PRODUCT_ID, i % 2 == 0 ? 1 : -1));
+        assertEquals(initial, cartService.getCartItems(userId).get(0).getQuantity());
+
+        // Restar exactamente lo que queda elimina la línea
+        assertNull(cartService.addOrUpdateItem(userId, PRODUCT_ID, -initial));
+        assertTrue(cartService.getCartItems(userId).isEmpty());
+    }
+
+    /**
+     * Prueba 3: si el MERGE choca con la clave única, el reintento corre en otra transacción
+     * (la primera ya se revirtió, devolviendo su reserva de stock) y la cantidad queda exacta.
+     */
+    @Test
+    void testUniqueViolation_RetriedInNewTransaction() throws Exception {
+        Product product = productService.findProductById(PRODUCT_ID).orElseThrow();
+        int availableBefore = stockReservationService.getAvailable(product);
+        List<Integer> completions = new CopyOnWriteArrayList<>();
+        AtomicReference<List<Integer>> completedBeforeRetry = new AtomicReference<>();
+
+        doAnswer(invocation -> {
+            // Primer intento: registra cómo termina su transacción y simula la carrera con otro INSERT
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    completions.add(status);
+                }
+            });
+            throw new DataIntegrityViolationException("uk_cart_item_user_product");
+        }).doAnswer(invocation -> {
+            completedBeforeRetry.set(List.copyOf(completions));
+            // El spy es un proxy de Spring Data: el MERGE real se ejecuta con el mismo JdbcTemplate
+            return new CartItemRepositoryImpl(jdbcTemplate).upsertQuantity(invocation.getArgument(0),
+                    invocation.getArgument(1), invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4));
+        }).when(cartItemRepository).upsertQuantity(eq(userId), eq(PRODUCT_ID), any(), anyInt(), anyInt());
+
+        CartItem line = cartService.addOrUpdateItem(userId, PRODUCT_ID, 2);
+
+        assertEquals(List.of(TransactionSynchronization.STATUS_ROLLED_BACK), completedBeforeRetry.get());
+        assertEquals(2, line.getQuantity());
+        assertEquals(availableBefore - 2, stockReservationService.getAvailable(product));
+    }
+
+    private void runConcurrently(int tasks, CartCall call) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                final int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    call.apply(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface CartCall {
+        void apply(int index) throws Exception;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.CheckoutResult;
+import com.example.demo.model.Product;
+import com.example.demo.repository.OrderRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del checkout contra la base H2 embebida: checkouts concurrentes del mismo carrito
+ * y reintentos con la misma Idempotency-Key.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ordertest",
+        "outbox.dispatch-ms=3600000"
+})
+class OrderServiceTest {
+
+    private static final Long PRODUCT_ID = 2L;
+    private static final int QUANTITY = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.findByUsername("user@huerto.cl").orElseThrow().getId();
+        cartService.clearCart(userId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartService.clearCart(userId);
+    }
+
+    /**
+     * Prueba 1: varios checkouts en paralelo del mismo carrito crean un solo pedido
+     * y descuentan el stock una sola vez; los demás fallan (carrito vacío o conflicto).
+     */
+    @Test
+    void testConcurrentCheckouts_CreateExactlyOneOrder() throws Exception {
+        cartService.addOrUpdateItem(userId, PRODUCT_ID, QUANTITY);
+        int availableBefore = available() + QUANTITY; // Lo reservado por el carrito también es del stock
+        int ordersBefore = orderRepository.findByUserIdOrderByIdDesc(userId).size();
+
+        int threads = 6;
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    if (!orderService.checkout(userId, null).isReplayed()) {
+                        created.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    // Esperado para todos menos uno: carrito vacío, conflicto o espera del bloqueo agotada
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(1, created.get());
+        assertEquals(ordersBefore + 1, orderRepository.findByUserIdOrderByIdDesc(userId).size());
+        assertEquals(availableBefore - QUANTITY, available());
+        assertTrue(cartService.getCartItems(userId).isEmpty());
+    }
+
+    /**
+     * Prueba 2: reintentar con la misma Idempotency-Key devuelve el mismo pedido sin crear otro ni tocar el stock.
+     */
+    @Test
+    void testRetryWithSameIdempotencyKey_ReplaysOrder() throws Exception {
+        cartService.addOrUpdateItem(userId, PRODUCT_ID, 1);
+        String key = "retry-" + System.nanoTime();
+
+        CheckoutResult first = orderService.checkout(userId, key);
+        int availableAfterFirst = available();
+        int ordersAfterFirst = orderRepository.findByUserIdOrderByIdDesc(userId).size();
+
+        // El reintento llega aunque el carrito tenga algo nuevo: no se vuelve a comprar
+        cartService.addOrUpdateItem(userId, PRODUCT_ID, 1);
+        CheckoutResult retry = orderService.checkout(userId, key);
+
+        assertFalse(first.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertEquals(first.getOrder().getId(), retry.getOrder().getId());
+        assertEquals(ordersAfterFirst, orderRepository.findByUserIdOrderByIdDesc(userId).size());
+        assertEquals(availableAfterFirst - 1, available()); // Solo la reserva de la línea nueva
+        assertEquals(1, cartService.getCartItems(userId).size());
+    }
+
+    /**
+     * Prueba 3: una clave nueva sobre un carrito vacío no crea pedido.
+     */
+    @Test
+    void testNewKeyWithEmptyCart_Fails() {
+        assertThrows(Exception.class, () -> orderService.checkout(userId, "empty-" + System.nanoTime()));
+        assertTrue(orderService.findReplay(userId, "empty-never-used").isEmpty());
+    }
+
+    private int available() {
+        Product product = productService.findProductById(PRODUCT_ID).orElseThrow();
+        return stockReservationService.getAvailable(product);
+    }
+}
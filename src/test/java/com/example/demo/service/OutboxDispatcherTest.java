@@ -0,0 +1,233 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.OrderEvent;
+import com.example.demo.jdbc.QueryCounter;
+import com.example.demo.model.Order;
+import com.example.demo.model.OutboxEvent;
+import com.example.demo.repository.OutboxEventRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del outbox de pedidos con un consumidor local que registra lo que recibe.
+ * Usa su propia base H2 y desactiva el ciclo programado para llamar a dispatch() a mano.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outboxtest",
+        "outbox.dispatch-ms=3600000",
+        "outbox.backoff-initial-ms=0"
+})
+class OutboxDispatcherTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RecordingConsumer consumer;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.findByUsername("user@huerto.cl").orElseThrow().getId();
+        outboxDispatcher.dispatch(); // Descarta lo que hayan dejado otras pruebas
+        consumer.received.clear();
+        consumer.failuresLeft.set(0);
+        consumer.failingOrders.clear();
+    }
+
+    /**
+     * Prueba 1: el checkout deja un evento OrderPlaced pendiente y el despacho lo entrega una sola vez.
+     */
+    @Test
+    void testCheckout_WritesEventDeliveredOnce() throws Exception {
+        Order order = checkoutOneItem();
+        assertTrue(consumer.received.isEmpty()); // Nada se ejecuta en el hilo del checkout
+
+        assertEquals(1, outboxDispatcher.dispatch());
+        assertEquals(0, outboxDispatcher.dispatch());
+
+        assertEquals(1, consumer.received.size());
+        OrderEvent event = consumer.received.get(0);
+        assertEquals("OrderPlaced", event.getType());
+        assertEquals(order.getId(), event.getOrderId());
+        assertTrue(event.getPayload().contains("\"total\":" + order.getTotal()));
+    }
+
+    /**
+     * Prueba 2: si el consumidor falla, el evento queda pendiente con el error y se entrega en el siguiente ciclo.
+     */
+    @Test
+    void testFailingConsumer_EventRetriedWithBackoff() throws Exception {
+        Order order = checkoutOneItem();
+        consumer.failuresLeft.set(1);
+
+        assertEquals(0, outboxDispatcher.dispatch());
+        OutboxEvent pending = findEvent(order.getId());
+        assertEquals(OutboxEvent.Status.PENDING, pending.getStatus());
+        assertEquals(1, pending.getAttempts());
+        assertNotNull(pending.getLastError());
+
+        assertEquals(1, outboxDispatcher.dispatch());
+        assertEquals(OutboxEvent.Status.DONE, findEvent(order.getId()).getStatus());
+        assertEquals(1, consumer.received.size());
+    }
+
+    /**
+     * Prueba 3: con más eventos en backoff que el tamaño del lote, los eventos nuevos de otros pedidos
+     * se siguen entregando (los que esperan su backoff no ocupan el lote).
+     */
+    @Test
+    void testEventsInBackoff_DoNotStarveOtherAggregates() {
+        List<OutboxEvent> created = new ArrayList<>();
+        ReflectionTestUtils.setField(outboxDispatcher, "batchSize", 2);
+        ReflectionTestUtils.setField(outboxDispatcher, "backoffInitialMs", 60_000L);
+        try {
+            for (long orderId = 900_001; orderId <= 900_003; orderId++) {
+                consumer.failingOrders.add(orderId);
+                created.add(outboxEventRepository.save(new OutboxEvent("Order", orderId, "OrderPlaced", "{}")));
+            }
+            outboxDispatcher.dispatch();
+            outboxDispatcher.dispatch(); // Los tres fallan y quedan esperando un minuto
+
+            created.add(outboxEventRepository.save(new OutboxEvent("Order", 900_004L, "OrderPlaced", "{}")));
+            assertEquals(1, outboxDispatcher.dispatch());
+            assertEquals(900_004L, consumer.received.get(0).getOrderId());
+        } finally {
+            ReflectionTestUtils.setField(outboxDispatcher, "batchSize", 100);
+            ReflectionTestUtils.setField(outboxDispatcher, "backoffInitialMs", 0L);
+            outboxEventRepository.deleteAll(created);
+        }
+    }
+
+    /**
+     * Prueba 4: si el evento anterior de un pedido espera su backoff, el siguiente del mismo pedido espera también.
+     */
+    @Test
+    void testLaterEventOfAggregateInBackoff_WaitsForEarlierOne() {
+        List<OutboxEvent> created = new ArrayList<>();
+        ReflectionTestUtils.setField(outboxDispatcher, "backoffInitialMs", 60_000L);
+        try {
+            consumer.failingOrders.add(900_010L);
+            created.add(outboxEventRepository.save(new OutboxEvent("Order", 900_010L, "OrderPlaced", "{}")));
+            assertEquals(0, outboxDispatcher.dispatch());
+
+            consumer.failingOrders.clear();
+            created.add(outboxEventRepository.save(new OutboxEvent("Order", 900_010L, "OrderShipped", "{}")));
+            created.add(outboxEventRepository.save(new OutboxEvent("Order", 900_011L, "OrderPlaced", "{}")));
+            assertEquals(1, outboxDispatcher.dispatch());
+            assertEquals(900_011L, consumer.received.get(0).getOrderId());
+        } finally {
+            ReflectionTestUtils.setField(outboxDispatcher, "backoffInitialMs", 0L);
+            outboxEventRepository.deleteAll(created);
+        }
+    }
+
+    /**
+     * Prueba 5: un evento abandonado (FAILED) retiene a los siguientes de su pedido, también dentro del mismo ciclo.
+     */
+    @Test
+    void testAbandonedEvent_KeepsBlockingItsAggregate() {
+        List<OutboxEvent> created = new ArrayList<>();
+        ReflectionTestUtils.setField(outboxDispatcher, "maxAttempts", 1);
+        try {
+            consumer.failingOrders.add(900_020L);
+            created.add(outboxEventRepository.save(new OutboxEvent("Order", 900_020L, "OrderPlaced", "{}")));
+            created.add(outboxEventRepository.save(new OutboxEvent("Order", 900_020L, "OrderShipped", "{}")));
+            assertEquals(0, outboxDispatcher.dispatch());
+            assertEquals(OutboxEvent.Status.FAILED, outboxEventRepository.findById(created.get(0).getId()).orElseThrow().getStatus());
+
+            consumer.failingOrders.clear();
+            assertEquals(0, outboxDispatcher.dispatch());
+            OutboxEvent later = outboxEventRepository.findById(created.get(1).getId()).orElseThrow();
+            assertEquals(OutboxEvent.Status.PENDING, later.getStatus());
+            assertEquals(0, later.getAttempts());
+            assertTrue(consumer.received.isEmpty());
+        } finally {
+            ReflectionTestUtils.setField(outboxDispatcher, "maxAttempts", 10);
+            outboxEventRepository.deleteAll(created);
+        }
+    }
+
+    /**
+     * Prueba 6: un ciclo con varios eventos hace una lectura y un solo batch de UPDATEs, sin releer cada evento.
+     */
+    @Test
+    void testDispatch_UpdatesBatchWithoutSelectPerEvent() {
+        List<OutboxEvent> created = new ArrayList<>();
+        try {
+            for (long orderId = 900_030; orderId < 900_035; orderId++) {
+                created.add(outboxEventRepository.save(new OutboxEvent("Order", orderId, "OrderPlaced", "{}")));
+            }
+            try (QueryCounter.Scope scope = QueryCounter.start()) {
+                assertEquals(5, outboxDispatcher.dispatch());
+                assertEquals(2, scope.getCount());
+            }
+            assertTrue(outboxEventRepository.findAllById(created.stream().map(OutboxEvent::getId).toList()).stream()
+                    .allMatch(e -> e.getStatus() == OutboxEvent.Status.DONE));
+        } finally {
+            outboxEventRepository.deleteAll(created);
+        }
+    }
+
+    private Order checkoutOneItem() throws Exception {
+        cartService.addOrUpdateItem(userId, 2L, 1);
+        return orderService.checkout(userId, null).getOrder();
+    }
+
+    private OutboxEvent findEvent(Long orderId) {
+        return outboxEventRepository.findAll().stream()
+                .filter(e -> e.getAggregateId().equals(orderId))
+                .findFirst().orElseThrow();
+    }
+
+    // Consumidor local: guarda los eventos y puede fallar las primeras N veces o siempre para ciertos pedidos
+    static class RecordingConsumer implements OrderEventConsumer {
+        final List<OrderEvent> received = new CopyOnWriteArrayList<>();
+        final AtomicInteger failuresLeft = new AtomicInteger();
+        final Set<Long> failingOrders = ConcurrentHashMap.newKeySet(); // Pedidos cuyos eventos siempre fallan
+
+        @Override
+        public void onOrderEvent(OrderEvent event) {
+            if (failingOrders.contains(event.getOrderId()) || failuresLeft.getAndDecrement() > 0) {
+                throw new IllegalStateException("Fallo simulado");
+            }
+            received.add(event);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        RecordingConsumer recordingConsumer() {
+            return new RecordingConsumer();
+        }
+    }
+}
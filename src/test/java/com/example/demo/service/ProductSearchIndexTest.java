@@ -0,0 +1,139 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas unitarias para ProductSearchIndex (sin contexto de Spring).
+ */
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ProductSearchIndex();
+        index.rebuild(List.of(
+                product(1L, "Plátanos de Ecuador", "Fruta tropical dulce", 4.0),
+                product(2L, "Manzanas Rojas", "Manzana Fuji crujiente", 4.5),
+                product(3L, "Jugo natural", "Jugo de manzanas y plátanos", 4.5),
+                product(4L, "Manzanilla", "Infusión de hierbas", 3.0),
+                product(5L, "Miel de ulmo", "Miel pura del sur", null)));
+    }
+
+    // =========================================================================
+    //                         PRUEBAS DE NORMALIZACIÓN
+    // =========================================================================
+
+    /**
+     * Prueba 1: fold quita acentos y pasa a minúsculas.
+     */
+    @Test
+    void testFold_RemovesAccentsAndLowercases() {
+        assertEquals("platanos", ProductSearchIndex.fold("Plátanos"));
+        assertEquals("infusion", ProductSearchIndex.fold("INFUSIÓN"));
+        assertEquals("pina", ProductSearchIndex.fold("Piña"));
+    }
+
+    /**
+     * Prueba 2: tokenize separa por todo lo que no sea letra o número y descarta vacíos.
+     */
+    @Test
+    void testTokenize_SplitsOnNonAlphanumerics() {
+        assertEquals(List.of("jugo", "de", "platanos", "1l"), ProductSearchIndex.tokenize("  Jugo de plátanos, 1L! "));
+        assertTrue(ProductSearchIndex.tokenize(null).isEmpty());
+        assertTrue(ProductSearchIndex.tokenize("   ").isEmpty());
+        assertTrue(ProductSearchIndex.tokenize("¡¿--?!").isEmpty());
+    }
+
+    // =========================================================================
+    //                            PRUEBAS DE BÚSQUEDA
+    // =========================================================================
+
+    /**
+     * Prueba 3: la consulta sin acentos encuentra el producto con acentos, y al revés.
+     */
+    @Test
+    void testSearch_AccentInsensitive() {
+        assertEquals(List.of(1L, 3L), index.search("platanos", 10));
+        assertEquals(List.of(1L, 3L), index.search("PLÁTANOS", 10));
+    }
+
+    /**
+     * Prueba 4: cada término se busca por prefijo.
+     */
+    @Test
+    void testSearch_PrefixMatching() {
+        assertEquals(List.of(1L, 3L), index.search("plat", 10));
+        assertTrue(index.search("manz", 10).containsAll(List.of(2L, 3L, 4L)));
+        assertTrue(index.search("tanos", 10).isEmpty()); // Solo prefijos, no subcadenas
+    }
+
+    /**
+     * Prueba 5: con varios términos solo quedan los productos que coinciden con todos (AND).
+     */
+    @Test
+    void testSearch_AndSemantics() {
+        assertEquals(List.of(3L), index.search("jugo platanos", 10));
+        assertEquals(List.of(2L), index.search("manzana fuji", 10));
+        assertTrue(index.search("miel platanos", 10).isEmpty());
+    }
+
+    /**
+     * Prueba 6: coincidir en el nombre pesa más que en la descripción, y la coincidencia exacta más que el prefijo.
+     */
+    @Test
+    void testSearch_RanksNameOverDescriptionAndExactOverPrefix() {
+        // 1 tiene "platanos" en el nombre; 3 solo en la descripción (y mayor rating)
+        assertEquals(List.of(1L, 3L), index.search("platanos", 10));
+        // "manzanas": 2 exacto en nombre, 3 exacto en descripción, 4 ("manzanilla") no coincide
+        assertEquals(List.of(2L, 3L), index.search("manzanas", 10));
+        // "manzan": 2 y 4 por prefijo en el nombre (2 gana por rating), 3 solo en la descripción
+        assertEquals(List.of(2L, 4L, 3L), index.search("manzan", 10));
+    }
+
+    /**
+     * Prueba 7: a igual coincidencia, desempata el rating; sin rating cuenta como 0.
+     */
+    @Test
+    void testSearch_RatingBreaksTies() {
+        index.index(product(6L, "Miel de quillay", "Miel pura del sur", 5.0));
+
+        assertEquals(List.of(6L, 5L), index.search("miel", 10));
+    }
+
+    /**
+     * Prueba 8: index reemplaza la versión anterior y remove la saca del índice.
+     */
+    @Test
+    void testIndexAndRemove_KeepIndexInSync() {
+        index.index(product(1L, "Bananas", "Fruta tropical dulce", 4.0));
+        assertEquals(List.of(3L), index.search("platanos", 10));
+        assertEquals(List.of(1L), index.search("banana", 10));
+
+        index.remove(1L);
+        assertTrue(index.search("banana", 10).isEmpty());
+        assertEquals(4, index.size());
+    }
+
+    /**
+     * Prueba 9: se respeta el límite, y una consulta vacía no devuelve nada.
+     */
+    @Test
+    void testSearch_LimitAndEmptyQuery() {
+        assertEquals(List.of(2L), index.search("manzan", 1));
+        assertTrue(index.search("   ", 10).isEmpty());
+        assertTrue(index.search("miel", 0).isEmpty());
+    }
+
+    private static Product product(Long id, String name, String description, Double rating) {
+        Product product = new Product(name, 1000, "kg", 10, 0, description, rating, 1L);
+        product.setId(id);
+        return product;
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Escrituras concurrentes sobre el catálogo: tras un save y un delete intercalados del mismo producto,
+ * la base de datos, el snapshot y el índice de búsqueda deben coincidir.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:productservicetest")
+class ProductServiceTest {
+
+    // Categoría propia para no depender de los productos de DataInitializer
+    private static final long CATEGORY = 91L;
+    private static final int ROUNDS = 40;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        inDatabase().forEach(productService::deleteProduct);
+    }
+
+    @Test
+    void testInterleavedSaveAndDelete_SnapshotAndIndexMatchDatabase() throws Exception {
+        productService.getCatalog(); // Con el snapshot cargado, cada escritura lo actualiza
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Product product = productService.saveProduct(product("Zarzamora"));
+                Product edit = productService.findProductById(product.getId()).orElseThrow();
+
+                CountDownLatch start = new CountDownLatch(1);
+                Future<?> save = executor.submit(() -> {
+                    start.await();
+                    Product copy = product("Zarzamora editada");
+                    copy.setId(edit.getId());
+                    try {
+                        productService.saveProduct(copy);
+                    } catch (RuntimeException e) {
+                        // El delete ganó y el save no encontró la fila: válido mientras todo quede consistente
+                    }
+                    return null;
+                });
+                Future<?> delete = executor.submit(() -> {
+                    start.await();
+                    productService.deleteProduct(product.getId());
+                    return null;
+                });
+                start.countDown();
+                save.get(30, TimeUnit.SECONDS);
+                delete.get(30, TimeUnit.SECONDS);
+
+                Set<Long> expected = inDatabase();
+                assertEquals(expected, inSnapshot(), "snapshot, vuelta " + round);
+                assertEquals(expected, Set.copyOf(searchIndex.search("zarzamora", 100)), "índice, vuelta " + round);
+                expected.forEach(productService::deleteProduct);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private Set<Long> inDatabase() {
+        return productRepository.findAll().stream()
+                .filter(p -> Objects.equals(p.getCategoryId(), CATEGORY))
+                .map(Product::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private Set<Long> inSnapshot() {
+        return productService.findProductsByCategories(List.of(CATEGORY)).stream()
+                .map(Product::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private static Product product(String name) {
+        return new Product(name, 1000, "kg", 10, 0, "Producto de prueba", 4.0, CATEGORY);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.demo.service;
+
+import com.example.demo.model.Product;
+import com.example.demo.repository.ProductRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Write-behind del stock físico frente a un cambio de stock del administrador.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:stockreservationtest",
+        "stock.write-behind-ms=3600000"
+})
+class StockReservationServiceTest {
+
+    // Categoría propia para no depender de los productos de DataInitializer
+    private static final long CATEGORY = 92L;
+
+    @Autowired
+    private ProductService productService;
+
+    @SpyBean
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Long productId;
+
+    @AfterEach
+    void tearDown() {
+        if (productId != null) {
+            productService.deleteProduct(productId);
+        }
+    }
+
+    /**
+     * Prueba 1: un flush que corre entre el save del administrador y onStockChanged escribe el stock anterior;
+     * el siguiente flush deja en la BD y en el snapshot el valor del administrador.
+     */
+    @Test
+    void testFlushBetweenAdminSaveAndReset_AdminValueWins() {
+        productService.getCatalog(); // Con el snapshot cargado, cada escritura lo actualiza
+        Product product = productService.saveProduct(
+                new Product("Frambuesa", 1000, "kg", 10, 0, "Producto de prueba", 4.0, CATEGORY));
+        productId = product.getId();
+        Long userId = userRepository.findByUsername("user@huerto.cl").orElseThrow().getId();
+
+        // Una venta deja 'onHand' = 8 pendiente de flush
+        stockReservationService.reserve(userId, product, 2);
+        stockReservationService.commit(userId, product, 2);
+
+        // El flush se intercala justo después del save del administrador (stock 50) y antes de reset()
+        doAnswer(invocation -> {
+            stockReservationService.flush();
+            return invocation.callRealMethod();
+        }).when(stockReservationService).onStockChanged(eq(productId), anyInt());
+
+        Product details = productService.findProductById(productId).orElseThrow();
+        Product edit = new Product(details.getName(), details.getPrice(), details.getUnit(), 50,
+                details.getImageRes(), details.getDescription(), details.getRating(), CATEGORY);
+        productService.updateProduct(productId, edit);
+        assertEquals(8, productRepository.findById(productId).orElseThrow().getStock()); // El flush pisó el 50
+
+        stockReservationService.flush();
+
+        assertEquals(50, productRepository.findById(productId).orElseThrow().getStock());
+        assertEquals(50, productService.findProductById(productId).orElseThrow().getStock());
+        assertEquals(50, stockReservationService.getAvailable(product));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pruebas unitarias para la caché de principals de UserDetailsServiceImpl.
+ */
+@ExtendWith(MockitoExtension.class)
+class UserDetailsServiceImplTest {
+
+    private static final String USERNAME = "user@huerto.cl";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserDetailsServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserDetailsServiceImpl(userRepository, 100, 300_000);
+    }
+
+    /**
+     * Prueba 1: sin invalidaciones, la segunda carga sale de la caché.
+     */
+    @Test
+    void testLoad_CachesPrincipal() {
+        when(userRepository.findByUsername(USERNAME)).thenReturn(Optional.of(user("ROLE_USER")));
+
+        service.loadUserByUsername(USERNAME);
+        service.loadUserByUsername(USERNAME);
+
+        verify(userRepository, times(1)).findByUsername(USERNAME);
+    }
+
+    /**
+     * Prueba 2: si evictUser llega mientras se lee la BD (ej. updateRoles), el principal leído no se cachea
+     * y la siguiente carga trae los roles nuevos.
+     */
+    @Test
+    void testEvictDuringLoad_StalePrincipalNotCached() {
+        when(userRepository.findByUsername(USERNAME))
+                .thenAnswer(invocation -> {
+                    service.evictUser(USERNAME); // El cambio de roles se confirma mientras leemos
+                    return Optional.of(user("ROLE_ADMIN"));
+                })
+                .thenReturn(Optional.of(user("ROLE_USER")));
+
+        service.loadUserByUsername(USERNAME);
+        UserDetails reloaded = service.loadUserByUsername(USERNAME);
+
+        verify(userRepository, times(2)).findByUsername(USERNAME);
+        assertEquals(List.of("ROLE_USER"), reloaded.getAuthorities().stream().map(Object::toString).toList());
+    }
+
+    private static User user(String role) {
+        User user = new User(USERNAME, "hash", "Usuario", List.of(role));
+        user.setId(1L);
+        return user;
+    }
+}